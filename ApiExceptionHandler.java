@@ -0,0 +1,31 @@
+package com.acme.pdf.controller;
+
+import com.acme.pdf.service.UploadSpool;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Load shedding (full queues, memory governor, pool limits) surfaces as 503 + Retry-After, an upload over the
+ * spool's per-file limit as 413; neither is a 500.
+ */
+@RestControllerAdvice
+public class ApiExceptionHandler {
+    private static final ObjectMapper M = new ObjectMapper();
+
+    @ExceptionHandler(RejectedExecutionException.class)
+    public ResponseEntity<ObjectNode> overloaded(RejectedExecutionException e) {
+        ObjectNode body = M.createObjectNode().put("error", e.getMessage() != null ? e.getMessage() : "overloaded, retry later");
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header("Retry-After", "5").body(body);
+    }
+
+    @ExceptionHandler(UploadSpool.TooLargeException.class)
+    public ResponseEntity<ObjectNode> tooLarge(UploadSpool.TooLargeException e) {
+        return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(M.createObjectNode().put("error", e.getMessage()));
+    }
+}
@@ -0,0 +1,41 @@
+package com.acme.pdf.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+
+/**
+ * PDFBox first; Docling only for scans (no text layer) and for text PDFs whose fonts give no headings away,
+ * which is where its layout model earns the subprocess. A PDFBox engine that throws (parse error, cpu bulkhead
+ * full) also falls through to Docling.
+ */
+@Service
+public class AutoHeadingEngine implements HeadingEngine {
+    @Autowired PdfBoxHeadingEngine pdfBox;
+    @Autowired DoclingHeadingEngine docling;
+
+    @Override
+    public String name() {
+        return "auto";
+    }
+
+    @Override
+    public Result find(File pdf, int[] pages, Timings timings) throws Exception {
+        return find(pdf, pages, null, timings);
+    }
+
+    @Override
+    public Result find(File pdf, int[] pages, DoclingProfile.Prescan scan, Timings timings) throws Exception {
+        Result r;
+        try {
+            r = pdfBox.find(pdf, pages, timings);
+        } catch (InterruptedException e) {
+            throw e;
+        } catch (Exception e) {
+            r = null;                          // unparsable for PDFBox, or no cpu slot: Docling may still manage
+        }
+        if (r != null && r.ok() && !r.headings().isEmpty()) return r;
+        return docling.find(pdf, pages, scan, timings);
+    }
+}
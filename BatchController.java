@@ -0,0 +1,51 @@
+package com.acme.pdf.controller;
+
+import com.acme.pdf.service.BatchService;
+import com.acme.pdf.service.Envelope;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.InputStream;
+import java.util.List;
+
+/** Archive digitization: many PDFs (or ZIPs of PDFs) in, one NDJSON envelope per document out (same include= as /api/extract). */
+@RestController
+@RequestMapping("/api")
+public class BatchController {
+    private static final String NDJSON = "application/x-ndjson";
+
+    @Autowired BatchService batches;
+
+    @PostMapping(value="/batch", consumes=MediaType.MULTIPART_FORM_DATA_VALUE, produces=NDJSON)
+    public ResponseEntity<StreamingResponseBody> batch(@RequestParam("files") List<MultipartFile> files,
+                                                       @RequestParam(value="include", required=false) String include) throws Exception {
+        BatchService.Batch batch = batches.newBatch(Envelope.parts(include));
+        boolean streaming = false;
+        try {
+            // spool on the request thread: multipart parts are cleaned up once this method returns,
+            // but extraction of each document already starts as soon as it is spooled
+            for (MultipartFile f : files) {
+                String name = f.getOriginalFilename() != null ? f.getOriginalFilename() : f.getName();
+                try (InputStream in = f.getInputStream()) {
+                    if (isZip(f, name)) batch.addZip(name, in);
+                    else batch.addPdf(name, in);
+                }
+            }
+            ResponseEntity<StreamingResponseBody> rsp = ResponseEntity.ok()
+                    .contentType(MediaType.parseMediaType(NDJSON)).body(batch::writeTo);
+            streaming = true;                      // writeTo owns the batch from here and closes it
+            return rsp;
+        } finally {
+            if (!streaming) batch.close();         // multipart read failed: cancel started work, delete spooled files
+        }
+    }
+
+    private static boolean isZip(MultipartFile f, String name) {
+        String type = f.getContentType() != null ? f.getContentType() : "";
+        return type.contains("zip") || name.toLowerCase().endsWith(".zip");
+    }
+}
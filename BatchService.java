@@ -0,0 +1,259 @@
+package com.acme.pdf.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Many documents per request: every PDF (loose or inside a ZIP) is spooled as it is read and extracted on a shared
+ * pool of extraction threads, at most batch.parallelism documents of one batch at a time (in flight or finished but
+ * not yet written), so one huge batch cannot crowd out the others nor pile up envelopes in memory. Results are
+ * emitted as NDJSON in completion order. A failing document yields an {"ok":false} line; it never aborts the batch.
+ */
+@Service
+public class BatchService {
+    private static final ObjectMapper M = new ObjectMapper();
+
+    @Autowired ExtractionPipeline pipeline;
+    @Autowired UploadSpool spool;
+
+    @Value("${batch.parallelism:0}") private int parallelism;                // per batch; 0 = one per core
+    @Value("${batch.maxDocuments:10000}") private int maxDocuments;          // per batch
+    @Value("${batch.maxEntryBytes:268435456}") private long maxEntryBytes;   // per ZIP entry, guards against zip bombs
+    @Value("${batch.timeoutMs:3600000}") private long timeoutMs;             // whole response; 0 = none
+
+    private ExecutorService workers;
+    private int perBatch;
+
+    @PostConstruct
+    void start() {
+        int cores = Runtime.getRuntime().availableProcessors();
+        perBatch = parallelism > 0 ? parallelism : cores;
+        workers = Executors.newFixedThreadPool(Math.max(perBatch, cores), r -> {
+            Thread t = new Thread(r, "extract-batch");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PreDestroy
+    void stop() {
+        workers.shutdownNow();
+    }
+
+    /** {@code parts}: envelope members to keep per line (see Envelope.parts), null = all. */
+    public Batch newBatch(Set<String> parts) {
+        return new Batch(parts);
+    }
+
+    /** A spooled document waiting for one of its batch's slots. */
+    private record Pending(int index, String name, UploadSpool.Handle pdf) { }
+
+    /**
+     * One request's worth of documents. Add inputs on the request thread, then stream with writeTo; a batch that
+     * never gets as far as writeTo must be closed.
+     */
+    public class Batch implements AutoCloseable {
+        private final CompletionService<ObjectNode> done = new ExecutorCompletionService<>(workers);
+        private final Semaphore slots = new Semaphore(perBatch);  // released when a line is written, not when it is ready
+        private final Deque<Pending> pending = new ArrayDeque<>();
+        private final List<Future<ObjectNode>> futures = new ArrayList<>();
+        private final List<ObjectNode> rejected = new ArrayList<>(); // written first, without a worker
+        private final List<UploadSpool.Handle> spooled = new ArrayList<>();
+        private final long startedAt = System.currentTimeMillis();
+        private final Set<String> parts;
+        private final ReentrantLock lock = new ReentrantLock(); // not synchronized: close() deletes files under it
+        private int documents, extracting;
+
+        private Batch(Set<String> parts) {
+            this.parts = parts;
+        }
+
+        public void addPdf(String name, InputStream in) {
+            if (documents >= maxDocuments) {
+                fail(name, "batch limit of " + maxDocuments + " documents reached");
+                return;
+            }
+            UploadSpool.Handle tmp;
+            try {
+                tmp = spool(in, -1);
+            } catch (IOException | RejectedExecutionException e) {
+                fail(name, "could not spool upload: " + e.getMessage());
+                return;
+            }
+            enqueue(name, tmp);
+        }
+
+        /** Every *.pdf entry becomes its own document; other entries are ignored. */
+        public void addZip(String name, InputStream in) {
+            try (ZipInputStream zip = new ZipInputStream(new BufferedInputStream(in))) {
+                ZipEntry e;
+                while ((e = zip.getNextEntry()) != null) {
+                    if (e.isDirectory() || !e.getName().toLowerCase().endsWith(".pdf")) continue;
+                    String entryName = name + "!/" + e.getName();
+                    if (documents >= maxDocuments) {
+                        fail(entryName, "batch limit of " + maxDocuments + " documents reached");
+                        continue;
+                    }
+                    UploadSpool.Handle tmp;
+                    try {
+                        tmp = spool(zip, maxEntryBytes);
+                    } catch (IOException | RejectedExecutionException ex) {
+                        fail(entryName, ex.getMessage());
+                        continue;
+                    }
+                    enqueue(entryName, tmp);
+                }
+            } catch (IOException e) {
+                fail(name, "unreadable zip: " + e.getMessage());
+            }
+        }
+
+        /**
+         * NDJSON: failed inputs, then one line per document as it finishes, then a summary line. Stops with
+         * "timedOut" in the summary once batch.timeoutMs has passed.
+         */
+        public void writeTo(OutputStream out) throws IOException {
+            int ok = 0, written = 0;
+            boolean timedOut = false;
+            try {
+                for (ObjectNode line : rejected) {
+                    writeLine(out, line);
+                    written++;
+                }
+                for (int i = 0; i < extracting; i++) {
+                    ObjectNode line;
+                    try {
+                        Future<ObjectNode> f = timeoutMs > 0
+                                ? done.poll(startedAt + timeoutMs - System.currentTimeMillis(), TimeUnit.MILLISECONDS)
+                                : done.take();
+                        if (f == null) {
+                            timedOut = true;
+                            break;
+                        }
+                        line = f.get();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException("batch interrupted");
+                    } catch (ExecutionException e) {
+                        line = M.createObjectNode().put("ok", false).put("error", String.valueOf(e.getCause()));
+                    }
+                    if (line.path("ok").asBoolean()) ok++;
+                    writeLine(out, line);
+                    written++;
+                    slots.release();
+                    pump();
+                }
+                ObjectNode summary = M.createObjectNode();
+                summary.put("documents", documents);
+                summary.put("ok", ok);
+                summary.put("failed", written - ok);
+                if (timedOut) {
+                    summary.put("timedOut", true);
+                    summary.put("unfinished", documents - written);
+                }
+                summary.put("ms", System.currentTimeMillis() - startedAt);
+                writeLine(out, M.createObjectNode().set("summary", summary));
+            } finally {
+                close();
+            }
+        }
+
+        /** Stop what hasn't finished and delete every spooled file; idempotent. */
+        @Override
+        public void close() {
+            lock.lock();
+            try {
+                pending.clear();
+                futures.forEach(f -> f.cancel(true)); // client gone: stop what hasn't started
+                spooled.forEach(UploadSpool.Handle::close);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void writeLine(OutputStream out, ObjectNode line) throws IOException {
+            out.write(M.writeValueAsBytes(line));
+            out.write('\n');
+            out.flush();
+        }
+
+        private void enqueue(String name, UploadSpool.Handle pdf) {
+            lock.lock();
+            try {
+                pending.add(new Pending(documents++, name, pdf));
+                extracting++;
+            } finally {
+                lock.unlock();
+            }
+            pump();
+        }
+
+        /** Start waiting documents while the batch has free slots. */
+        private void pump() {
+            lock.lock();
+            try {
+                while (!pending.isEmpty() && slots.tryAcquire()) {
+                    Pending p = pending.poll();
+                    futures.add(done.submit(() -> extractOne(p.index(), p.name(), p.pdf())));
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private ObjectNode extractOne(int index, String name, UploadSpool.Handle pdf) {
+            ObjectNode line = M.createObjectNode();
+            line.put("index", index);
+            line.put("name", name);
+            try {
+                ObjectNode envelope = pipeline.envelope(pdf.file(), pdf.sha256(), ExtractionPipeline.Progress.NONE).toTree(parts);
+                line.put("ok", true);
+                line.set("envelope", envelope);
+            } catch (Exception e) {
+                line.put("ok", false);
+                line.put("error", e.getClass().getSimpleName() + ": " + e.getMessage());
+            } finally {
+                pdf.close();
+            }
+            return line;
+        }
+
+        private void fail(String name, String error) {
+            lock.lock();
+            try {
+                ObjectNode line = M.createObjectNode();
+                line.put("index", documents++);
+                line.put("name", name);
+                line.put("ok", false);
+                line.put("error", error);
+                rejected.add(line);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /** Spool one input; -1 = the spool's own per-upload limit. Handles are closed at the latest by close(). */
+        private UploadSpool.Handle spool(InputStream in, long limit) throws IOException {
+            UploadSpool.Handle h = limit < 0 ? spool.spool(in, -1) : spool.spool(in, -1, limit);
+            lock.lock();
+            try {
+                spooled.add(h);
+            } finally {
+                lock.unlock();
+            }
+            return h;
+        }
+    }
+}
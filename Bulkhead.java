@@ -0,0 +1,97 @@
+package com.acme.pdf.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
+
+/**
+ * At most {@code limit} callers inside at once; up to {@code maxQueued} more wait in arrival order for at most
+ * {@code acquireTimeoutMs}. Anything beyond that is shed with RejectedExecutionException (a 503 at the API).
+ * A caller with a shorter deadline of its own waits only until then, and gets a TimeoutException instead.
+ */
+public final class Bulkhead {
+    private static final ObjectMapper M = new ObjectMapper();
+
+    private final String name;
+    private final int limit, maxQueued;
+    private final long acquireTimeoutMs;
+    private final Semaphore permits;
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicLong admitted = new AtomicLong(), rejected = new AtomicLong(), timedOut = new AtomicLong();
+
+    public Bulkhead(String name, int limit, int maxQueued, long acquireTimeoutMs) {
+        this.name = name;
+        this.limit = Math.max(1, limit);
+        this.maxQueued = Math.max(0, maxQueued);
+        this.acquireTimeoutMs = acquireTimeoutMs;
+        this.permits = new Semaphore(this.limit, true);
+    }
+
+    /** No limit: for components built outside Spring (benchmarks, tools). */
+    static Bulkhead unlimited(String name) {
+        return new Bulkhead(name, Integer.MAX_VALUE, 0, 0);
+    }
+
+    /** Run {@code work} inside the bulkhead; {@code waited} is told how long the caller queued, in ns. */
+    public <T> T call(Callable<T> work, LongConsumer waited) throws Exception {
+        return call(work, waited, Deadline.NONE);
+    }
+
+    /** As above, queuing no longer than {@code deadline} allows. */
+    public <T> T call(Callable<T> work, LongConsumer waited, Deadline deadline) throws Exception {
+        long t = System.nanoTime();
+        acquire(deadline);
+        waited.accept(System.nanoTime() - t);
+        try {
+            return work.call();
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void acquire(Deadline deadline) throws InterruptedException, TimeoutException {
+        if (!permits.tryAcquire(0, TimeUnit.MILLISECONDS)) {        // timed form: no barging past queued callers
+            if (queued.incrementAndGet() > maxQueued) {
+                queued.decrementAndGet();
+                rejected.incrementAndGet();
+                throw new RejectedExecutionException(name + " bulkhead queue is full");
+            }
+            try {
+                long wait = deadline.cap(acquireTimeoutMs);
+                if (!permits.tryAcquire(wait, TimeUnit.MILLISECONDS)) {
+                    timedOut.incrementAndGet();
+                    if (wait < acquireTimeoutMs) throw new TimeoutException("caller's deadline passed waiting for a " + name + " slot");
+                    throw new RejectedExecutionException("no " + name + " slot free after " + acquireTimeoutMs + " ms");
+                }
+            } finally {
+                queued.decrementAndGet();
+            }
+        }
+        admitted.incrementAndGet();
+    }
+
+    public String name() { return name; }
+    public int limit() { return limit; }
+    public int active() { return limit - permits.availablePermits(); }
+    public int queued() { return queued.get(); }
+
+    public ObjectNode stats() {
+        ObjectNode s = M.createObjectNode();
+        s.put("limit", limit);
+        s.put("active", active());
+        s.put("queued", queued());
+        s.put("maxQueued", maxQueued);
+        s.put("admitted", admitted.get());
+        s.put("rejected", rejected.get());
+        s.put("timedOut", timedOut.get());
+        return s;
+    }
+}
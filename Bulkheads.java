@@ -0,0 +1,89 @@
+package com.acme.pdf.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.micrometer.core.instrument.Tags;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.Callable;
+
+/**
+ * The two kinds of work an extraction waits on, each with its own limit so neither can starve the other while
+ * request threads themselves are cheap (virtual): "docling" bounds conversions in flight (subprocesses, or pool
+ * round trips, where it defaults to the pool size so callers queue here, visibly), "cpu" bounds PDFBox loads,
+ * harvests, page copies and layout to the cores. Queue depths are gauges (bulkhead.active / .queued{bulkhead}),
+ * time spent queuing is the docling_wait / cpu_wait stage, and /api/bulkheads/stats has the counters.
+ */
+@Service
+public class Bulkheads {
+    private static final ObjectMapper M = new ObjectMapper();
+
+    /** No limits, records nothing; for components built outside Spring (benchmarks, tools). */
+    public static final Bulkheads NONE = new Bulkheads(Bulkhead.unlimited("docling"), Bulkhead.unlimited("cpu"));
+
+    @Autowired PipelineMetrics metrics = PipelineMetrics.NONE;
+
+    @Value("${bulkhead.docling.maxConcurrent:0}") private int doclingLimit;         // 0 = docling.pool.size, or cores when spawning
+    @Value("${bulkhead.docling.maxQueued:64}") private int doclingQueued;
+    @Value("${bulkhead.docling.acquireTimeoutMs:300000}") private long doclingTimeoutMs;
+    @Value("${bulkhead.cpu.maxConcurrent:0}") private int cpuLimit;                 // 0 = one per core
+    @Value("${bulkhead.cpu.maxQueued:256}") private int cpuQueued;
+    @Value("${bulkhead.cpu.acquireTimeoutMs:60000}") private long cpuTimeoutMs;
+    @Value("${docling.pool.size:2}") private int poolSize;
+
+    private Bulkhead docling, cpu;
+
+    public Bulkheads() {
+    }
+
+    private Bulkheads(Bulkhead docling, Bulkhead cpu) {
+        this.docling = docling;
+        this.cpu = cpu;
+    }
+
+    @PostConstruct
+    void start() {
+        int cores = Runtime.getRuntime().availableProcessors();
+        docling = new Bulkhead("docling", doclingLimit > 0 ? doclingLimit : poolSize > 0 ? poolSize : cores,
+                doclingQueued, doclingTimeoutMs);
+        cpu = new Bulkhead("cpu", cpuLimit > 0 ? cpuLimit : cores, cpuQueued, cpuTimeoutMs);
+        for (Bulkhead b : new Bulkhead[]{docling, cpu}) {
+            metrics.registry().gauge("bulkhead.active", Tags.of("bulkhead", b.name()), b, Bulkhead::active);
+            metrics.registry().gauge("bulkhead.queued", Tags.of("bulkhead", b.name()), b, Bulkhead::queued);
+        }
+    }
+
+    /** One Docling conversion. */
+    public <T> T docling(Timings timings, Callable<T> work) throws Exception {
+        return docling(timings, Deadline.NONE, work);
+    }
+
+    /** As above, giving up on the slot (TimeoutException) once {@code deadline} has passed. */
+    public <T> T docling(Timings timings, Deadline deadline, Callable<T> work) throws Exception {
+        return docling.call(work, n -> metrics.record("docling_wait", n, timings), deadline);
+    }
+
+    /** CPU-bound PDFBox work: parsing, harvesting, copying pages, building the layout. */
+    public <T> T cpu(Timings timings, Callable<T> work) throws Exception {
+        return cpu(timings, Deadline.NONE, work);
+    }
+
+    public <T> T cpu(Timings timings, Deadline deadline, Callable<T> work) throws Exception {
+        return cpu.call(work, n -> metrics.record("cpu_wait", n, timings), deadline);
+    }
+
+    /** Conversions allowed in flight at once; Integer.MAX_VALUE for NONE. */
+    public int doclingLimit() {
+        return docling.limit();
+    }
+
+    public ObjectNode stats() {
+        ObjectNode s = M.createObjectNode();
+        s.set("docling", docling.stats());
+        s.set("cpu", cpu.stats());
+        return s;
+    }
+}
@@ -0,0 +1,79 @@
+package com.acme.pdf.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Consecutive-failure breaker. After {@code threshold} failures in a row it opens for {@code openMs}; then one
+ * probe call is let through (half-open) and its outcome closes or re-opens it. Every allowed call must end in
+ * success(), failure() or cancel().
+ */
+public final class CircuitBreaker {
+    private static final ObjectMapper M = new ObjectMapper();
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int threshold;
+    private final long openMs;
+    private State state = State.CLOSED;
+    private int failures;
+    private long openedAt, trips, rejected;
+
+    public CircuitBreaker(int threshold, long openMs) {
+        this.threshold = Math.max(1, threshold);
+        this.openMs = openMs;
+    }
+
+    /** Whether a call may go ahead now; an open breaker past its cool-down admits exactly one probe. */
+    public synchronized boolean allow() {
+        if (state == State.CLOSED) return true;
+        if (state == State.OPEN && System.currentTimeMillis() - openedAt >= openMs) {
+            state = State.HALF_OPEN;
+            return true;
+        }
+        rejected++;
+        return false;
+    }
+
+    /** allow() without taking the probe: for callers deciding whether preparatory work is worth doing. */
+    public synchronized boolean wouldAllow() {
+        return state == State.CLOSED || (state == State.OPEN && System.currentTimeMillis() - openedAt >= openMs);
+    }
+
+    public synchronized void success() {
+        state = State.CLOSED;
+        failures = 0;
+    }
+
+    public synchronized void failure() {
+        if (state == State.HALF_OPEN || ++failures >= threshold) {
+            state = State.OPEN;
+            openedAt = System.currentTimeMillis();
+            failures = 0;
+            trips++;
+        }
+    }
+
+    /** The call ended without telling us anything (e.g. never reached the backend); a probe slot is handed back. */
+    public synchronized void cancel() {
+        if (state == State.HALF_OPEN) {
+            state = State.OPEN;
+            openedAt = System.currentTimeMillis() - openMs; // next caller probes straight away
+        }
+    }
+
+    public synchronized State state() {
+        return state;
+    }
+
+    public synchronized ObjectNode stats() {
+        ObjectNode s = M.createObjectNode();
+        s.put("state", state.name());
+        s.put("consecutiveFailures", failures);
+        s.put("threshold", threshold);
+        s.put("openMs", openMs);
+        s.put("trips", trips);
+        s.put("rejected", rejected);
+        return s;
+    }
+}
@@ -0,0 +1,43 @@
+package com.acme.pdf.service;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A point in time a whole request step must be done by, fixed once at its entry and handed to every wait
+ * inside it (bulkhead slots, pool workers, page chunks) so the waits add up to the budget instead of each
+ * getting a budget of its own.
+ */
+public final class Deadline {
+    /** Never expires. */
+    public static final Deadline NONE = new Deadline(Long.MAX_VALUE);
+
+    private final long at; // System.nanoTime() value, or Long.MAX_VALUE for none
+
+    private Deadline(long at) {
+        this.at = at;
+    }
+
+    /** {@code ms} from now; 0 or less = none. */
+    public static Deadline in(long ms) {
+        return ms > 0 ? new Deadline(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ms)) : NONE;
+    }
+
+    public boolean bounded() {
+        return at != Long.MAX_VALUE;
+    }
+
+    /** Milliseconds left, at least 0; Long.MAX_VALUE when unbounded. */
+    public long remainingMs() {
+        if (!bounded()) return Long.MAX_VALUE;
+        return Math.max(0, TimeUnit.NANOSECONDS.toMillis(at - System.nanoTime()));
+    }
+
+    /** The shorter of {@code ms} and what is left. */
+    public long cap(long ms) {
+        return Math.min(ms, remainingMs());
+    }
+
+    public boolean expired() {
+        return bounded() && at - System.nanoTime() <= 0;
+    }
+}
@@ -1,70 +1,534 @@
 package com.acme.pdf.service;
 
+import com.acme.pdf.util.VirtualThreads;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.*;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.io.EOFException;
 import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.*;
+import java.util.concurrent.*;
 
 @Service
 public class DoclingClient {
     @Value("${docling.pythonCmd:python3}") private String pythonCmd;
     @Value("${docling.scriptPath:../docling/docling_runner.py}") private String scriptPath;
+    @Value("${docling.pool.size:2}") private int poolSize; // 0 = spawn one process per call
+    @Value("${docling.pool.maxQueued:64}") private int poolMaxQueued;
+    @Value("${docling.pool.acquireTimeoutMs:300000}") private long poolAcquireTimeoutMs;
+    @Value("${docling.pool.healthIntervalMs:15000}") private long poolHealthIntervalMs;
+    @Value("${docling.timeoutMs:120000}") private long timeoutMs;             // per document, queuing and chunks included; 0 = none
+    @Value("${docling.breaker.failures:5}") private int breakerFailures;      // consecutive failures/timeouts that open the breaker
+    @Value("${docling.breaker.openMs:30000}") private long breakerOpenMs;     // how long to skip Docling before probing again
+    @Value("${docling.profiles:true}") private boolean profiles;              // pre-scan each PDF and pick OCR/tables; false = runner default
+    @Value("${docling.prescan.maxPages:5}") private int prescanPages;         // sampled per chunk (or per document when not chunked)
+    @Value("${docling.prescan.minChars:40}") private int prescanMinChars;     // a page with less text is a scan
+    @Value("${docling.prescan.maxImagesPerPage:3}") private double prescanMaxImages;
+    @Value("${docling.profile.textTables:false}") private boolean textTables; // table structure model for text-layer PDFs too
+    @Value("${docling.chunk.pages:40}") private int chunkPages;               // pages per chunk of a large document; 0 = never split
+    @Value("${docling.chunk.minPages:100}") private int chunkMinPages;        // split documents with at least this many pages
+    @Value("${docling.chunk.parallelism:0}") private int chunkParallelism;    // chunks of one document in flight; 0 = half the docling bulkhead
+
+    @Autowired(required = false) PipelineMetrics metrics = PipelineMetrics.NONE; // absent in benchmarks
+    @Autowired(required = false) PdfMemoryGovernor governor;                     // ditto: plain in-heap load
+    @Autowired(required = false) Bulkheads bulkheads = Bulkheads.NONE;          // ditto: no limits
+    @Autowired(required = false) PdfBoxExtractor pdfBox;                         // ditto: never split
 
     private final ObjectMapper M = new ObjectMapper();
+    private DoclingWorkerPool pool;
+    private CircuitBreaker breaker = new CircuitBreaker(5, 30_000);
+    private final ExecutorService chunkPool = VirtualThreads.perTask("docling-chunk"); // waits only: bulkheads bound the work
+
+    @PostConstruct
+    void start() {
+        breaker = new CircuitBreaker(breakerFailures, breakerOpenMs);
+        metrics.registry().gauge("docling.breaker.open", breaker, b -> b.state() == CircuitBreaker.State.CLOSED ? 0 : 1);
+        if (poolSize > 0) {
+            List<String> command = new ArrayList<>(List.of(pythonCmd(), scriptPath, "--serve"));
+            if (profiles) {                                   // load both pipelines at boot, not on a worker's first job
+                for (DoclingProfile p : List.of(DoclingProfile.FULL, DoclingProfile.text(textTables))) {
+                    command.add("--warm");
+                    command.add(p.options().toString());
+                }
+            }
+            pool = new DoclingWorkerPool(command,
+                    poolSize, poolMaxQueued, poolAcquireTimeoutMs, poolHealthIntervalMs,
+                    nanos -> metrics.record("docling_startup", nanos, null));
+            metrics.registry().gauge("docling.pool.live", pool, DoclingWorkerPool::live);
+            metrics.registry().gauge("docling.pool.idle", pool, DoclingWorkerPool::idle);
+        }
+    }
+
+    @PreDestroy
+    void stop() {
+        if (pool != null) pool.close();
+        chunkPool.shutdownNow();
+    }
+
+    /** False while the breaker is open: a conversion now would be short-circuited. */
+    public boolean available() {
+        return breaker.wouldAllow();
+    }
 
     public ObjectNode runRaw(File pdf) throws Exception {
-        String cmd = Optional.ofNullable(System.getenv("DOC_PY_CMD")).filter(s -> !s.isBlank()).orElse(pythonCmd);
-        Process p = new ProcessBuilder(cmd, scriptPath, pdf.getAbsolutePath())
-                .redirectErrorStream(true).directory(new File(".")).start();
+        return runRaw(pdf, null);
+    }
+
+    /**
+     * Full Docling document, or an empty object when Docling failed, timed out or is short-circuited by the
+     * breaker; callers then build a PDFBox-only envelope. Large documents are converted in page chunks side by side
+     * and merged (see DoclingMerge); a failed chunk fails the document. docling.timeoutMs bounds the whole call from
+     * here: slot and worker waits, every chunk, and the document as a whole.
+     * @param timings per-request breakdown to add docling_* stages to, or null
+     */
+    public ObjectNode runRaw(File pdf, Timings timings) throws Exception {
+        return runRaw(pdf, null, timings);
+    }
+
+    /** @param scan what prescan() found when the harvest already had the document open, or null to look here */
+    public ObjectNode runRaw(File pdf, DoclingProfile.Prescan scan, Timings timings) throws Exception {
+        if (!breaker.allow()) {
+            metrics.doclingShortCircuited();
+            return M.createObjectNode();
+        }
+        Deadline deadline = Deadline.in(timeoutMs);
+        Boolean healthy = null;
+        try {
+            Plan plan = plan(pdf, scan, deadline, timings);
+            ObjectNode doc = chunked(plan.pages())
+                    ? rawInChunks(pdf, plan, deadline, timings)
+                    : bulkheads.docling(timings, deadline, () -> convertRaw(pdf, plan.profile(), deadline, timings));
+            healthy = !doc.isEmpty();
+            return doc;
+        } catch (TimeoutException e) {
+            metrics.doclingDeadline();                   // still queued when time ran out: PDFBox-only, not a 500
+            return M.createObjectNode();
+        } catch (RejectedExecutionException | InterruptedException e) {
+            throw e;                                     // never reached Docling: says nothing about its health
+        } catch (Exception e) {
+            healthy = false;
+            throw e;
+        } finally {
+            settle(healthy);
+        }
+    }
+
+    private ObjectNode convertRaw(File pdf, DoclingProfile profile, Deadline deadline, Timings timings) throws Exception {
+        if (pool != null) {
+            JsonNode doc;
+            try {
+                doc = pooled(pdf, profile, p -> M.readTree(p), deadline, timings);
+            } catch (IOException e) {
+                return M.createObjectNode(); // runner error or crash: same contract as a non-zero exit below
+            }
+            if (!(doc instanceof ObjectNode o) || o.isEmpty()) {
+                metrics.doclingEmpty();
+                return M.createObjectNode();
+            }
+            return o;
+        }
+        long start = System.nanoTime();
+        Process p = spawn(pdf, profile, deadline, timings);
+        ScheduledFuture<?> kill = kill(p, deadline);
         try (InputStream is = p.getInputStream()) {
+            String out = new String(is.readAllBytes()); // drain while the child runs; waiting first can fill the pipe and hang it
+            int code = p.waitFor();
+            metrics.stage("docling_convert", start, timings); // spawned: includes interpreter start + model load
+            if (expired(kill)) {
+                metrics.doclingExit("timeout");
+                return M.createObjectNode();
+            }
+            metrics.doclingExit(Integer.toString(code));
+            if (code != 0) return M.createObjectNode();
+            if (out.isBlank()) {
+                metrics.doclingEmpty();
+                return M.createObjectNode();
+            }
+            long parse = System.nanoTime();
+            try {
+                return (ObjectNode) M.readTree(out);
+            } catch (JsonProcessingException e) {
+                metrics.doclingParseFailure();
+                throw e;
+            } finally {
+                metrics.stage("docling_parse", parse, timings);
+            }
+        } finally {
+            reap(p, kill);
+        }
+    }
+
+    /**
+     * Streaming alternative to runRaw + headings: parses the runner's stdout as it is produced and keeps only the
+     * heading list, never the document tree. Returns null when Docling failed (so callers can tell "no headings"
+     * from "no answer").
+     */
+    public ArrayNode streamHeadings(File pdf) throws Exception {
+        return streamHeadings(pdf, null);
+    }
+
+    public ArrayNode streamHeadings(File pdf, Timings timings) throws Exception {
+        return streamHeadings(pdf, null, timings);
+    }
+
+    public ArrayNode streamHeadings(File pdf, DoclingProfile.Prescan scan, Timings timings) throws Exception {
+        if (!breaker.allow()) {
+            metrics.doclingShortCircuited();
+            return null;
+        }
+        Deadline deadline = Deadline.in(timeoutMs);
+        Boolean healthy = null;
+        try {
+            Plan plan = plan(pdf, scan, deadline, timings);
+            ArrayNode headings = chunked(plan.pages())
+                    ? headingsInChunks(pdf, plan, deadline, timings)
+                    : bulkheads.docling(timings, deadline, () -> convertHeadings(pdf, plan.profile(), deadline, timings));
+            healthy = headings != null;
+            return headings;
+        } catch (TimeoutException e) {
+            metrics.doclingDeadline();
+            return null;
+        } catch (RejectedExecutionException | InterruptedException e) {
+            throw e;
+        } catch (Exception e) {
+            healthy = false;
+            throw e;
+        } finally {
+            settle(healthy);
+        }
+    }
+
+    private ArrayNode convertHeadings(File pdf, DoclingProfile profile, Deadline deadline, Timings timings) throws Exception {
+        if (pool != null) {
+            ArrayNode headings;
+            try {
+                headings = pooled(pdf, profile, DoclingHeadingReader::read, deadline, timings);
+            } catch (IOException e) {
+                return null;
+            }
+            if (headings == null) metrics.doclingEmpty(); // no document: a failure, as in convertRaw
+            return headings;
+        }
+        long start = System.nanoTime();
+        Process p = spawn(pdf, profile, deadline, timings);
+        ScheduledFuture<?> kill = kill(p, deadline);
+        ArrayNode headings;
+        boolean empty = false;
+        try (InputStream is = p.getInputStream(); JsonParser jp = M.getFactory().createParser(is)) {
+            headings = DoclingHeadingReader.read(jp);
+            empty = headings == null;                       // blank or non-object stdout: no document
+            is.transferTo(OutputStream.nullOutputStream()); // let the child finish writing
+        } catch (IOException e) {
+            headings = null;                                 // truncated / non-JSON output (or killed at the deadline)
+            if (kill == null || !kill.isDone()) metrics.doclingParseFailure();
+        }
+        try {
             int code = p.waitFor();
-            String out = new String(is.readAllBytes());
-            if (code != 0 || out.isBlank()) return M.createObjectNode();
-            return (ObjectNode) M.readTree(out);
+            metrics.stage("docling_convert", start, timings); // parsed as it streamed: no separate docling_parse
+            if (expired(kill)) {
+                metrics.doclingExit("timeout");
+                return null;
+            }
+            metrics.doclingExit(Integer.toString(code));
+            if (code != 0) return null;
+            if (empty) metrics.doclingEmpty();
+            return headings;
+        } finally {
+            reap(p, kill);
         }
     }
 
-    /** Extract lightweight heading list: [{title,level,page,bbox:{x,y,w,h}}] */
-    public ArrayNode headings(ObjectNode doclingJson) {
-        ArrayNode arr = M.createArrayNode();
-        if (doclingJson.isEmpty()) return arr;
-
-        JsonNode pages = doclingJson.path("pages");
-        for (JsonNode p : pages) {
-            int pageNo = p.path("page_no").asInt(p.path("number").asInt(1)); // tolerate schema flavors
-            for (JsonNode b : p.path("blocks")) {
-                String kind = b.path("type").asText();
-                if (!kind.toLowerCase().contains("heading")) continue;
-
-                String text = b.path("text").asText().trim();
-                if (text.isEmpty()) continue;
-
-                int level = b.path("level").asInt(
-                        kind.equalsIgnoreCase("heading1") ? 1 :
-                        kind.equalsIgnoreCase("heading2") ? 2 :
-                        kind.equalsIgnoreCase("heading3") ? 3 : 4);
-
-                JsonNode bb = b.path("bbox");
-                ObjectNode one = M.createObjectNode();
-                one.put("title", text);
-                one.put("level", level);
-                one.put("page", pageNo);
-
-                ObjectNode bbox = M.createObjectNode();
-                bbox.put("x", bb.path("x").asDouble(bb.path("left").asDouble(0)));
-                bbox.put("y", bb.path("y").asDouble(bb.path("top").asDouble(0)));
-                bbox.put("w", bb.path("w").asDouble(bb.path("width").asDouble(0)));
-                bbox.put("h", bb.path("h").asDouble(bb.path("height").asDouble(0)));
-
-                one.set("bbox", bbox);
-                arr.add(one);
+    /**
+     * Pool round trip, timed: docling_convert runs until the reply starts arriving (so it includes waiting for a free
+     * worker), docling_parse is the reader consuming the document.
+     */
+    private <T> T pooled(File pdf, DoclingProfile profile, DoclingWorkerPool.DocumentReader<T> reader, Deadline deadline,
+                         Timings timings) throws Exception {
+        long start = System.nanoTime();
+        long left = remaining(deadline);
+        long[] replied = {0};
+        try {
+            T doc = pool.convert(pdf, profile != null ? profile.options() : null, p -> {
+                replied[0] = System.nanoTime();
+                metrics.stage("docling_convert", start, timings);
+                return reader.read(p);
+            }, left);
+            if (replied[0] > 0) metrics.stage("docling_parse", replied[0], timings);
+            metrics.doclingExit("0");
+            return doc;
+        } catch (DoclingWorkerPool.ConversionTimeoutException e) {
+            metrics.doclingExit("timeout");
+            throw e;
+        } catch (JsonProcessingException e) {
+            metrics.doclingParseFailure();
+            throw e;
+        } catch (IOException e) {
+            metrics.doclingExit(e instanceof EOFException ? "crash" : "error");
+            throw e;
+        }
+    }
+
+    /**
+     * What one PDFBox look at the document decided.
+     * @param profile pipeline options, null = runner default (docling.profiles off)
+     * @param pages   page count, 0 = not counted (PDFBox could not read it)
+     * @param scan    the sampled pages behind {@code profile}, null when there are none
+     */
+    private record Plan(DoclingProfile profile, int pages, DoclingProfile.Prescan scan) { }
+
+    /**
+     * Sample pages of an open document for plan(): up to docling.prescan.maxPages per chunk it will be converted
+     * in, or over the whole document when it won't be split. Only counts the pages when docling.profiles is off.
+     */
+    public DoclingProfile.Prescan prescan(PDDocument doc) throws IOException {
+        int pages = doc.getNumberOfPages();
+        if (!profiles) return new DoclingProfile.Prescan(pages, List.of());
+        int[] sample = DoclingProfile.sample(pages, chunked(pages) ? chunkPages : pages, prescanPages);
+        return DoclingProfile.prescan(doc, sample, prescanMinChars);
+    }
+
+    /**
+     * Pipeline options for this PDF (no OCR, nor table model, when the sampled pages' text layer covers them) and
+     * its page count for chunking: from {@code scan} when the caller has one, else from one PDFBox load here.
+     */
+    private Plan plan(File pdf, DoclingProfile.Prescan scan, Deadline deadline, Timings timings) throws Exception {
+        Plan plan;
+        if (scan != null) {
+            plan = plan(scan);
+        } else {
+            boolean count = chunkPages > 0 && pdfBox != null;
+            if (!profiles && !count) return new Plan(null, 0, null);
+            plan = bulkheads.cpu(timings, deadline, () -> {
+                long t = System.nanoTime();
+                try (PdfMemoryGovernor.Lease lease = governor != null ? governor.open(pdf) : PdfMemoryGovernor.unmanaged(pdf)) {
+                    return plan(prescan(lease.doc()));
+                } catch (IOException e) {
+                    return new Plan(profiles ? DoclingProfile.FULL : null, 0, null); // PDFBox can't read it: let Docling try with everything on
+                } finally {
+                    metrics.stage("docling_prescan", t, timings);
+                }
+            });
+        }
+        if (plan.profile() != null) metrics.doclingProfile(plan.profile().name());
+        return plan;
+    }
+
+    private Plan plan(DoclingProfile.Prescan scan) {
+        if (!profiles) return new Plan(null, scan.pageCount(), null);
+        return new Plan(DoclingProfile.choose(scan, prescanMaxImages, textTables), scan.pageCount(), scan);
+    }
+
+    /** A chunk's own options, from the samples on its pages; the document's when none fell there. */
+    private DoclingProfile profile(Plan plan, PageSubset chunk) {
+        if (plan.scan() == null) return plan.profile();
+        int[] pages = chunk.pages();
+        DoclingProfile.Prescan own = plan.scan().range(pages[0], pages[pages.length - 1]);
+        return own.pages() == 0 ? plan.profile() : DoclingProfile.choose(own, prescanMaxImages, textTables);
+    }
+
+    private boolean chunked(int pages) {
+        return chunkPages > 0 && pdfBox != null && pages >= chunkMinPages && pages > chunkPages;
+    }
+
+    private ObjectNode rawInChunks(File pdf, Plan plan, Deadline deadline, Timings timings) throws Exception {
+        List<ObjectNode> docs = inChunks(pdf, plan, deadline, timings, chunk -> {
+            ObjectNode doc = bulkheads.docling(timings, deadline,
+                    () -> convertRaw(chunk.file(), profile(plan, chunk), deadline, timings));
+            if (doc.isEmpty()) return null;
+            chunk.remapDocument(doc);
+            return doc;
+        });
+        if (docs == null) return M.createObjectNode();
+        long t = System.nanoTime();
+        ObjectNode merged = DoclingMerge.merge(docs);
+        metrics.stage("docling_merge", t, timings);
+        return merged;
+    }
+
+    private ArrayNode headingsInChunks(File pdf, Plan plan, Deadline deadline, Timings timings) throws Exception {
+        List<ArrayNode> parts = inChunks(pdf, plan, deadline, timings, chunk -> {
+            ArrayNode headings = bulkheads.docling(timings, deadline,
+                    () -> convertHeadings(chunk.file(), profile(plan, chunk), deadline, timings));
+            if (headings != null) chunk.remapHeadings(headings);
+            return headings;
+        });
+        if (parts == null) return null;
+        ArrayNode all = M.createArrayNode();
+        parts.forEach(all::addAll);
+        return all;
+    }
+
+    /** One chunk's conversion, in the chunk's own page numbers until remapped; null = it failed. */
+    @FunctionalInterface
+    private interface ChunkConverter<T> {
+        T convert(PageSubset chunk) throws Exception;
+    }
+
+    private record Converted<T>(int index, T result) { }
+
+    /**
+     * Split {@code pdf} into runs of docling.chunk.pages pages and convert them side by side, at most
+     * docling.chunk.parallelism at once (each also holding a docling bulkhead slot while it runs; see parallelism()). Results come back
+     * in page order; null as soon as any chunk fails, and the chunks still running are cancelled. All of it, waits
+     * included, ends at {@code deadline} (TimeoutException).
+     */
+    private <T> List<T> inChunks(File pdf, Plan plan, Deadline deadline, Timings timings, ChunkConverter<T> converter)
+            throws Exception {
+        List<int[]> ranges = new ArrayList<>();
+        for (int from = 1; from <= plan.pages(); from += chunkPages) {
+            int[] range = new int[Math.min(chunkPages, plan.pages() - from + 1)];
+            for (int i = 0; i < range.length; i++) range[i] = from + i;
+            ranges.add(range);
+        }
+        List<PageSubset> chunks = bulkheads.cpu(timings, deadline, () -> {
+            long t = System.nanoTime();
+            List<PageSubset> split = pdfBox.split(pdf, ranges);
+            metrics.stage("docling_split", t, timings);
+            return split;
+        });
+        Semaphore slots = new Semaphore(parallelism());
+        CompletionService<Converted<T>> done = new ExecutorCompletionService<>(chunkPool);
+        List<Future<Converted<T>>> running = new ArrayList<>();
+        try {
+            for (int i = 0; i < chunks.size(); i++) {
+                int index = i;
+                running.add(done.submit(() -> {
+                    if (!slots.tryAcquire(deadline.remainingMs(), TimeUnit.MILLISECONDS)) {
+                        throw new TimeoutException("docling deadline passed before chunk " + index + " started");
+                    }
+                    try {
+                        return new Converted<>(index, converter.convert(chunks.get(index)));
+                    } finally {
+                        slots.release();
+                    }
+                }));
+            }
+            List<T> results = new ArrayList<>(Collections.nCopies(chunks.size(), null));
+            for (int i = 0; i < chunks.size(); i++) {
+                Converted<T> c;
+                try {
+                    Future<Converted<T>> f = done.poll(deadline.remainingMs(), TimeUnit.MILLISECONDS);
+                    if (f == null) throw new TimeoutException("docling deadline passed with chunks still converting");
+                    c = f.get();
+                } catch (ExecutionException e) {
+                    throw e.getCause() instanceof Exception cause ? cause : e;
+                }
+                if (c.result() == null) return null;
+                results.set(c.index(), c.result());
             }
+            return results;
+        } finally {
+            for (Future<?> f : running) f.cancel(true);      // no-op once finished; stops the rest after a failure
+            chunks.forEach(PageSubset::close);
+        }
+    }
+
+    /**
+     * Chunks of one document in flight: always fewer than the docling bulkhead admits, so one long document
+     * cannot hold every slot while small ones queue behind it. Half of them unless configured lower.
+     */
+    private int parallelism() {
+        int limit = bulkheads.doclingLimit();
+        if (limit == Integer.MAX_VALUE) limit = poolSize > 0 ? poolSize : Runtime.getRuntime().availableProcessors();
+        int cap = Math.max(1, limit - 1);
+        return chunkParallelism > 0 ? Math.min(chunkParallelism, cap) : Math.max(1, Math.min(cap, limit / 2));
+    }
+
+    /** Kills the runner's process tree once {@code deadline} has passed (null = no deadline). */
+    private ScheduledFuture<?> kill(Process p, Deadline deadline) {
+        if (!deadline.bounded()) return null;
+        return DoclingWorkerPool.WATCHDOG.schedule(() -> DoclingWorkerPool.killTree(p),
+                Math.max(1, deadline.remainingMs()), TimeUnit.MILLISECONDS);
+    }
+
+    /** Milliseconds a conversion starting now may take, 0 = unbounded; TimeoutException once there is nothing left. */
+    private static long remaining(Deadline deadline) throws TimeoutException {
+        if (!deadline.bounded()) return 0;
+        long left = deadline.remainingMs();
+        if (left <= 0) throw new TimeoutException("docling deadline passed before the conversion started");
+        return left;
+    }
+
+    /** True if the deadline already fired; otherwise disarms it. */
+    private static boolean expired(ScheduledFuture<?> deadline) {
+        return deadline != null && !deadline.cancel(false);
+    }
+
+    /** Spawned runner is done with, however that happened: nothing it started may outlive the request. */
+    private void reap(Process p, ScheduledFuture<?> deadline) {
+        if (deadline != null) deadline.cancel(false);
+        if (p.isAlive()) DoclingWorkerPool.killTree(p);
+        metrics.subprocesses.decrementAndGet();
+    }
+
+    /** Breaker bookkeeping for one allowed call: null = it never got as far as Docling. */
+    private void settle(Boolean healthy) {
+        if (healthy == null) breaker.cancel();
+        else if (healthy) breaker.success();
+        else breaker.failure();
+    }
+
+    public ObjectNode stats() {
+        ObjectNode s = M.createObjectNode();
+        s.put("mode", pool != null ? "pool" : "spawn");
+        if (pool != null) {
+            s.put("poolSize", pool.size());
+            s.put("live", pool.live());
+            s.put("idle", pool.idle());
+        }
+        s.put("timeoutMs", timeoutMs);
+        s.put("profiles", profiles);
+        s.put("chunkPages", chunkPages);
+        s.put("chunkMinPages", chunkMinPages);
+        s.put("chunkParallelism", parallelism());
+        s.set("breaker", breaker.stats());
+        return s;
+    }
+
+    /** Started runner; the caller owns it and must reap() it. */
+    private Process spawn(File pdf, DoclingProfile profile, Deadline deadline, Timings timings)
+            throws IOException, TimeoutException {
+        remaining(deadline);
+        long start = System.nanoTime();
+        List<String> command = new ArrayList<>(List.of(pythonCmd(), scriptPath));
+        if (profile != null) {
+            command.add("--options");
+            command.add(profile.options().toString());
+        }
+        command.add(pdf.getAbsolutePath());
+        Process p = new ProcessBuilder(command)
+                .redirectError(ProcessBuilder.Redirect.INHERIT)  // stderr logs must not interleave with the JSON on stdout
+                .directory(new File(".")).start();
+        metrics.subprocesses.incrementAndGet();
+        metrics.stage("docling_spawn", start, timings);
+        return p;
+    }
+
+    private String pythonCmd() {
+        return Optional.ofNullable(System.getenv("DOC_PY_CMD")).filter(s -> !s.isBlank()).orElse(pythonCmd);
+    }
+
+    /** Extract lightweight heading list: [{title,level,page,bbox:{x,y,w,h[,origin]}}] */
+    public ArrayNode headings(ObjectNode doclingJson) {
+        if (doclingJson.isEmpty()) return M.createArrayNode();
+        try (JsonParser p = doclingJson.traverse()) {
+            ArrayNode headings = DoclingHeadingReader.read(p);  // same single pass as the streaming path, fed from the tree
+            return headings != null ? headings : M.createArrayNode();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);     // cannot happen reading an in-memory tree
         }
-        return arr;
     }
 }
@@ -0,0 +1,63 @@
+package com.acme.pdf.service;
+
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+
+/** Headings from a Docling conversion; with a page list, only a PDFBox copy of those pages is converted. */
+@Service
+public class DoclingHeadingEngine implements HeadingEngine {
+    @Autowired DoclingClient docling;
+    @Autowired PdfBoxExtractor pdfBox;
+    @Autowired PipelineMetrics metrics;
+    @Autowired Bulkheads bulkheads;
+
+    @Value("${docling.streaming:false}") private boolean streaming; // headings only, raw Docling JSON left out of the envelope
+
+    @Override
+    public String name() {
+        return "docling";
+    }
+
+    @Override
+    public Result find(File pdf, int[] pages, Timings timings) throws Exception {
+        return find(pdf, pages, null, timings);
+    }
+
+    @Override
+    public Result find(File pdf, int[] pages, DoclingProfile.Prescan scan, Timings timings) throws Exception {
+        PageSubset subset = pages != null && docling.available() ? subset(pdf, pages, timings) : null; // breaker open: skip the copy
+        ObjectNode raw = null;
+        ArrayNode headings;
+        try {
+            File input = subset != null ? subset.file() : pdf;
+            DoclingProfile.Prescan inputScan = scan != null && subset != null ? scan.subset(subset.pages()) : scan;
+            if (streaming) {
+                headings = docling.streamHeadings(input, inputScan, timings);
+            } else {
+                raw = docling.runRaw(input, inputScan, timings);    // full document JSON
+                headings = raw.isEmpty() ? null : docling.headings(raw);
+            }
+            if (subset != null) {                                   // back to the uploaded document's page numbers
+                if (headings != null) subset.remapHeadings(headings);
+                if (raw != null) subset.remapDocument(raw);
+            }
+        } finally {
+            if (subset != null) subset.close();
+        }
+        return new Result(name(), headings, raw != null && !raw.isEmpty() ? raw : null, subset != null ? subset.pages() : null);
+    }
+
+    private PageSubset subset(File pdf, int[] pages, Timings timings) throws Exception {
+        return bulkheads.cpu(timings, () -> {
+            long t = System.nanoTime();
+            PageSubset subset = pdfBox.subset(pdf, pages);
+            metrics.stage("page_subset", t, timings);
+            return subset;
+        });
+    }
+}
@@ -0,0 +1,189 @@
+package com.acme.pdf.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Pulls the heading list out of a Docling document in one streaming pass.
+ * Only the current page's headings and the current block's scalars are held; everything else is skipped
+ * token by token, so memory stays flat however large the document is.
+ * Tolerates both schema flavors (page_no/number, x/left, y/top, w/width, h/height); a bbox coord_origin is
+ * passed through as bbox.origin so layout can flip bottom-left boxes correctly.
+ */
+public final class DoclingHeadingReader {
+    private static final JsonNodeFactory F = JsonNodeFactory.instance;
+
+    private DoclingHeadingReader() {}
+
+    /**
+     * Parser must sit on (or just before) the document's first token; on return it sits on the document's last
+     * token, so a caller reading a larger stream (worker protocol) can carry on from there.
+     * Returns null when there is no document (not an object, or an empty one), so callers can tell that from a
+     * document without headings. "pages" may be an array or an object keyed by page number.
+     */
+    public static ArrayNode read(JsonParser p) throws IOException {
+        ArrayNode out = F.arrayNode();
+        JsonToken t = p.currentToken() != null ? p.currentToken() : p.nextToken();
+        if (t != JsonToken.START_OBJECT) {
+            if (t != null) p.skipChildren();
+            return null;
+        }
+        boolean any = false;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            any = true;
+            String name = p.currentName();
+            t = p.nextToken();
+            if ("pages".equals(name) && t == JsonToken.START_ARRAY) {
+                for (t = p.nextToken(); t != JsonToken.END_ARRAY && t != null; t = p.nextToken()) {
+                    if (t == JsonToken.START_OBJECT) readPage(p, out);
+                    else p.skipChildren();
+                }
+            } else if ("pages".equals(name) && t == JsonToken.START_OBJECT) {
+                while (p.nextToken() == JsonToken.FIELD_NAME) {
+                    if (p.nextToken() == JsonToken.START_OBJECT) readPage(p, out);
+                    else p.skipChildren();
+                }
+            } else {
+                p.skipChildren();
+            }
+        }
+        return any ? out : null;
+    }
+
+    /** one heading before its page number is known (page_no may come after blocks) */
+    private static final class Pending {
+        String title;
+        int level;
+        double x, y, w, h;
+        String origin;   // Docling's coord_origin when the document states it (TOPLEFT | BOTTOMLEFT)
+    }
+
+    private static void readPage(JsonParser p, ArrayNode out) throws IOException {
+        Integer pageNo = null, number = null;
+        List<Pending> pending = new ArrayList<>();
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String name = p.currentName();
+            JsonToken t = p.nextToken();
+            switch (name) {
+                case "page_no" -> pageNo = intValue(p, t);
+                case "number" -> number = intValue(p, t);
+                case "blocks" -> {
+                    if (t != JsonToken.START_ARRAY) { p.skipChildren(); break; }
+                    for (t = p.nextToken(); t != JsonToken.END_ARRAY && t != null; t = p.nextToken()) {
+                        if (t != JsonToken.START_OBJECT) { p.skipChildren(); continue; }
+                        Pending h = readBlock(p);
+                        if (h != null) pending.add(h);
+                    }
+                }
+                default -> p.skipChildren();
+            }
+        }
+
+        int page = pageNo != null ? pageNo : number != null ? number : 1;
+        for (Pending h : pending) {
+            ObjectNode one = F.objectNode();
+            one.put("title", h.title);
+            one.put("level", h.level);
+            one.put("page", page);
+            ObjectNode bbox = F.objectNode();
+            bbox.put("x", h.x);
+            bbox.put("y", h.y);
+            bbox.put("w", h.w);
+            bbox.put("h", h.h);
+            if (h.origin != null) bbox.put("origin", h.origin);
+            one.set("bbox", bbox);
+            out.add(one);
+        }
+    }
+
+    /** Returns the heading for a heading block, null for anything else. */
+    private static Pending readBlock(JsonParser p) throws IOException {
+        String kind = "", text = "", origin = null;
+        Integer level = null;
+        Double x = null, left = null, y = null, top = null, w = null, width = null, h = null, height = null;
+
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String name = p.currentName();
+            JsonToken t = p.nextToken();
+            switch (name) {
+                case "type" -> kind = t.isScalarValue() ? p.getValueAsString("") : skip(p, "");
+                case "text" -> text = t.isScalarValue() ? p.getValueAsString("") : skip(p, "");
+                case "level" -> level = intValue(p, t);
+                case "bbox" -> {
+                    if (t != JsonToken.START_OBJECT) { p.skipChildren(); break; }
+                    while (p.nextToken() == JsonToken.FIELD_NAME) {
+                        String k = p.currentName();
+                        if ("coord_origin".equals(k)) {
+                            origin = p.nextToken().isScalarValue() ? p.getValueAsString() : skip(p, null);
+                            continue;
+                        }
+                        Double v = doubleValue(p, p.nextToken());
+                        switch (k) {
+                            case "x" -> x = v;
+                            case "left" -> left = v;
+                            case "y" -> y = v;
+                            case "top" -> top = v;
+                            case "w" -> w = v;
+                            case "width" -> width = v;
+                            case "h" -> h = v;
+                            case "height" -> height = v;
+                            default -> { }
+                        }
+                    }
+                }
+                default -> p.skipChildren();
+            }
+        }
+
+        if (!kind.toLowerCase().contains("heading")) return null;
+        text = text.trim();
+        if (text.isEmpty()) return null;
+
+        Pending one = new Pending();
+        one.title = text;
+        one.level = level != null ? level :
+                kind.equalsIgnoreCase("heading1") ? 1 :
+                kind.equalsIgnoreCase("heading2") ? 2 :
+                kind.equalsIgnoreCase("heading3") ? 3 : 4;
+        one.x = first(x, left);
+        one.y = first(y, top);
+        one.w = first(w, width);
+        one.h = first(h, height);
+        one.origin = origin;
+        return one;
+    }
+
+    private static Integer intValue(JsonParser p, JsonToken t) throws IOException {
+        if (t.isNumeric()) return p.getValueAsInt();
+        if (t == JsonToken.VALUE_STRING) {
+            try { return Integer.parseInt(p.getText().trim()); } catch (NumberFormatException e) { return null; }
+        }
+        p.skipChildren();
+        return null;
+    }
+
+    private static Double doubleValue(JsonParser p, JsonToken t) throws IOException {
+        if (t.isNumeric()) return p.getValueAsDouble();
+        if (t == JsonToken.VALUE_STRING) {
+            try { return Double.parseDouble(p.getText().trim()); } catch (NumberFormatException e) { return null; }
+        }
+        p.skipChildren();
+        return null;
+    }
+
+    private static String skip(JsonParser p, String dflt) throws IOException {
+        p.skipChildren();
+        return dflt;
+    }
+
+    private static double first(Double a, Double b) {
+        return a != null ? a : b != null ? b : 0;
+    }
+}
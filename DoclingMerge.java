@@ -0,0 +1,69 @@
+package com.acme.pdf.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Stitches the Docling documents of consecutive page chunks (already remapped to the original page numbers)
+ * into one, as if a single run had produced it. Arrays concatenate in chunk order (pages, texts, tables,
+ * body.children, ...), objects merge member by member (so a "pages" dict gains every chunk's keys), scalars
+ * keep the first chunk's value. JSON-pointer references into top-level arrays ("#/texts/12" in $ref, self_ref
+ * or cref) are shifted by the number of items the earlier chunks contributed.
+ */
+final class DoclingMerge {
+    private static final Pattern REF = Pattern.compile("#/([^/]+)/(\\d+)(.*)");
+    private static final Set<String> REF_FIELDS = Set.of("$ref", "self_ref", "cref");
+
+    private DoclingMerge() {}
+
+    /** Merges into (and returns) the first document; the others are consumed. */
+    static ObjectNode merge(List<ObjectNode> chunks) {
+        if (chunks.isEmpty()) throw new IllegalArgumentException("no chunks to merge");
+        ObjectNode merged = chunks.get(0);
+        for (int i = 1; i < chunks.size(); i++) {
+            ObjectNode chunk = chunks.get(i);
+            Map<String, Integer> offsets = new HashMap<>();
+            merged.fields().forEachRemaining(e -> {
+                if (e.getValue().isArray()) offsets.put(e.getKey(), e.getValue().size());
+            });
+            shiftRefs(chunk, offsets);
+            mergeInto(merged, chunk);
+        }
+        return merged;
+    }
+
+    private static void mergeInto(ObjectNode into, ObjectNode from) {
+        from.fields().forEachRemaining(e -> {
+            JsonNode mine = into.get(e.getKey());
+            if (mine == null) into.set(e.getKey(), e.getValue());
+            else if (mine instanceof ArrayNode a && e.getValue() instanceof ArrayNode b) a.addAll(b);
+            else if (mine instanceof ObjectNode a && e.getValue() instanceof ObjectNode b) mergeInto(a, b);
+            // scalars: first chunk wins (schema name, version, origin, ...)
+        });
+    }
+
+    private static void shiftRefs(JsonNode node, Map<String, Integer> offsets) {
+        if (node instanceof ObjectNode o) {
+            for (Iterator<Map.Entry<String, JsonNode>> it = o.fields(); it.hasNext(); ) {
+                Map.Entry<String, JsonNode> e = it.next();
+                if (REF_FIELDS.contains(e.getKey()) && e.getValue().isTextual()) {
+                    Matcher m = REF.matcher(e.getValue().asText());
+                    Integer offset = m.matches() ? offsets.get(m.group(1)) : null;
+                    if (offset != null && offset > 0) {
+                        e.setValue(TextNode.valueOf("#/" + m.group(1) + "/" + (Integer.parseInt(m.group(2)) + offset) + m.group(3)));
+                    }
+                } else {
+                    shiftRefs(e.getValue(), offsets);
+                }
+            }
+        } else if (node instanceof ArrayNode a) {
+            for (JsonNode n : a) shiftRefs(n, offsets);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.acme.pdf.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.text.PDFTextStripper;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Docling pipeline options for one conversion, sent to the runner as {"ocr":..,"tables":..}; page and picture
+ * images are never generated. "full" (OCR + table structure) is for scans, "text" skips OCR (and by default the
+ * table model) for PDFs whose text layer already has everything. {@link #choose} picks one from a PDFBox pre-scan.
+ */
+public record DoclingProfile(String name, boolean ocr, boolean tables) {
+    private static final ObjectMapper M = new ObjectMapper();
+
+    public static final DoclingProfile FULL = new DoclingProfile("full", true, true);
+
+    public static DoclingProfile text(boolean tables) {
+        return new DoclingProfile("text", false, tables);
+    }
+
+    /** What the runner reads: {@code --options <json>} when spawned, "options" in a pool request. */
+    public ObjectNode options() {
+        return M.createObjectNode().put("ocr", ocr).put("tables", tables);
+    }
+
+    /** Looks at an open document; DoclingClient.prescan, handed to the harvest so its load can serve both. */
+    @FunctionalInterface
+    public interface Scanner {
+        Prescan scan(PDDocument doc) throws IOException;
+    }
+
+    /**
+     * What a pre-scan of sampled pages found.
+     * @param pageCount pages in the document scanned
+     * @param sampled   the pages looked at, ascending
+     */
+    public record Prescan(int pageCount, List<Page> sampled) {
+        /** @param textless fewer characters than docling.prescan.minChars in the text layer */
+        public record Page(int number, boolean textless, int images) { }
+
+        int pages() {
+            return sampled.size();
+        }
+
+        int textless() {
+            return (int) sampled.stream().filter(Page::textless).count();
+        }
+
+        double imagesPerPage() {
+            return sampled.isEmpty() ? 0 : sampled.stream().mapToInt(Page::images).sum() / (double) sampled.size();
+        }
+
+        /** The samples among pages {@code from}..{@code to} (1-based, inclusive). */
+        Prescan range(int from, int to) {
+            return new Prescan(to - from + 1, sampled.stream().filter(p -> p.number() >= from && p.number() <= to).toList());
+        }
+
+        /**
+         * The same scan for a copy of {@code pages} (PageSubset), renumbered 1..n; null when no sample falls on
+         * those pages, so the copy has to be looked at itself.
+         */
+        Prescan subset(int[] pages) {
+            List<Page> kept = new ArrayList<>();
+            for (Page p : sampled) {
+                int i = Arrays.binarySearch(pages, p.number());
+                if (i >= 0) kept.add(new Page(i + 1, p.textless(), p.images()));
+            }
+            return kept.isEmpty() ? null : new Prescan(pages.length, kept);
+        }
+    }
+
+    /**
+     * Pages to sample: up to {@code perWindow} spread evenly over every run of {@code window} pages (the chunks
+     * a large document is converted in, or the whole document), so a scanned appendix deep in a long file is seen.
+     */
+    public static int[] sample(int pageCount, int window, int perWindow) {
+        if (window <= 0) window = Math.max(1, pageCount);
+        int per = Math.max(1, perWindow);
+        List<Integer> pages = new ArrayList<>();
+        for (int from = 1; from <= pageCount; from += window) {
+            int len = Math.min(window, pageCount - from + 1), n = Math.min(per, len);
+            for (int i = 0; i < n; i++) pages.add(from + (int) ((long) i * len / n));
+        }
+        return pages.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Look at {@code pages} (1-based, ascending): characters in the text layer, image XObjects on the page.
+     * @param minChars fewer characters than this makes a page textless (a scan, or text only in images)
+     */
+    public static Prescan prescan(PDDocument doc, int[] pages, int minChars) throws IOException {
+        PDFTextStripper stripper = new PDFTextStripper();
+        List<Prescan.Page> sampled = new ArrayList<>(pages.length);
+        for (int number : pages) {
+            stripper.setStartPage(number);
+            stripper.setEndPage(number);
+            boolean textless = stripper.getText(doc).strip().length() < minChars;
+            int images = 0;
+            PDResources res = doc.getPage(number - 1).getResources();
+            if (res != null) {
+                for (COSName name : res.getXObjectNames()) {
+                    if (res.isImageXObject(name)) images++;
+                }
+            }
+            sampled.add(new Prescan.Page(number, textless, images));
+        }
+        return new Prescan(doc.getNumberOfPages(), sampled);
+    }
+
+    /** Full pipeline if any sampled page is textless or pages are image-heavy; the cheap one otherwise. */
+    public static DoclingProfile choose(Prescan scan, double maxImagesPerPage, boolean textTables) {
+        if (scan.pages() == 0 || scan.textless() > 0 || scan.imagesPerPage() > maxImagesPerPage) return FULL;
+        return text(textTables);
+    }
+}
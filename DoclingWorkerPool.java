@@ -0,0 +1,285 @@
+package com.acme.pdf.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
+
+/**
+ * Fixed-size pool of long-lived `docling_runner.py --serve` processes.
+ * Each worker loads its models once and answers one JSON request per stdin line (see the runner for the protocol).
+ * Callers queue when every worker is busy; dead or unresponsive workers are replaced in the background.
+ */
+public class DoclingWorkerPool implements AutoCloseable {
+    private static final ObjectMapper M = new ObjectMapper();
+
+    /** Enforces conversion deadlines; not the housekeeping threads, which can be busy booting workers for minutes. */
+    static final ScheduledExecutorService WATCHDOG = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "docling-watchdog");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /** A conversion ran past its deadline; the worker's process tree has been killed. */
+    public static final class ConversionTimeoutException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        public ConversionTimeoutException(long timeoutMs) {
+            super("docling conversion exceeded " + timeoutMs + " ms");
+        }
+    }
+
+    private final List<String> command;
+    private final int size;
+    private final long acquireTimeoutMs;
+    private final long pingTimeoutMs;                   // an idle worker silent this long is wedged
+    private final Semaphore queueSlots;                  // bounds callers waiting for a worker
+    private final BlockingQueue<Worker> idle = new LinkedBlockingQueue<>();
+    private final Set<Worker> all = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger starting = new AtomicInteger();
+    private final AtomicLong seq = new AtomicLong();
+    private final ScheduledExecutorService housekeeping;
+    private final LongConsumer onStarted;
+    private volatile boolean closed;
+
+    /**
+     * @param command          full runner command line, e.g. [python3, docling_runner.py, --serve] (+ --warm options...)
+     * @param size             number of worker processes
+     * @param maxQueued        callers allowed to wait for a busy pool before being rejected
+     * @param acquireTimeoutMs how long a caller waits for a free worker
+     * @param healthIntervalMs period of the liveness ping over idle workers, and how long a ping may take
+     */
+    public DoclingWorkerPool(List<String> command, int size, int maxQueued, long acquireTimeoutMs, long healthIntervalMs) {
+        this(command, size, maxQueued, acquireTimeoutMs, healthIntervalMs, nanos -> { });
+    }
+
+    /** @param onStarted told how long each worker took from spawn to "ready" (interpreter + model load), in ns */
+    public DoclingWorkerPool(List<String> command, int size, int maxQueued, long acquireTimeoutMs, long healthIntervalMs,
+                             LongConsumer onStarted) {
+        this.onStarted = onStarted;
+        this.command = List.copyOf(command);
+        this.size = size;
+        this.acquireTimeoutMs = acquireTimeoutMs;
+        this.pingTimeoutMs = Math.max(1_000, healthIntervalMs);
+        this.queueSlots = new Semaphore(Math.max(0, maxQueued) + size);
+        this.housekeeping = Executors.newScheduledThreadPool(Math.max(1, size), r -> {
+            Thread t = new Thread(r, "docling-pool");
+            t.setDaemon(true);
+            return t;
+        });
+        replenish();
+        housekeeping.scheduleWithFixedDelay(this::healthCheck, healthIntervalMs, healthIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /** Reads the response's "document" value; must leave the parser on that value's last token. */
+    @FunctionalInterface
+    public interface DocumentReader<T> {
+        T read(JsonParser p) throws IOException;
+    }
+
+    /** Convert one PDF on the next free worker; returns the Docling document JSON. */
+    public JsonNode convert(File pdf) throws IOException, InterruptedException, TimeoutException {
+        JsonNode doc = convert(pdf, p -> M.readTree(p));
+        return doc != null ? doc : M.createObjectNode();
+    }
+
+    /** Convert one PDF and hand the document to {@code reader} straight off the worker's stdout, no tree in between. */
+    public <T> T convert(File pdf, DocumentReader<T> reader) throws IOException, InterruptedException, TimeoutException {
+        return convert(pdf, reader, 0);
+    }
+
+    /**
+     * As above, but bounded by {@code timeoutMs} from the call, waiting for a worker included: a caller still without
+     * one by then gets a TimeoutException; a worker still busy then is killed (with its children) and replaced, and
+     * the caller gets a ConversionTimeoutException. 0 = no deadline.
+     */
+    public <T> T convert(File pdf, DocumentReader<T> reader, long timeoutMs) throws IOException, InterruptedException, TimeoutException {
+        return convert(pdf, null, reader, timeoutMs);
+    }
+
+    /** @param options Docling pipeline options for this conversion (see DoclingProfile), null = the runner's default */
+    public <T> T convert(File pdf, ObjectNode options, DocumentReader<T> reader, long timeoutMs)
+            throws IOException, InterruptedException, TimeoutException {
+        if (closed) throw new IllegalStateException("docling pool is closed");
+        if (!queueSlots.tryAcquire()) throw new RejectedExecutionException("docling pool queue is full");
+        try {
+            long called = System.nanoTime();
+            long wait = timeoutMs > 0 ? Math.min(acquireTimeoutMs, timeoutMs) : acquireTimeoutMs;
+            Worker w = idle.poll(wait, TimeUnit.MILLISECONDS);
+            if (w == null) throw new TimeoutException("no docling worker free after " + wait + " ms");
+            long left = timeoutMs > 0 ? timeoutMs - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - called) : 0;
+
+            ObjectNode req = M.createObjectNode();
+            req.put("id", Long.toString(seq.incrementAndGet()));
+            req.put("op", "convert");
+            req.put("path", pdf.getAbsolutePath());
+            if (options != null) req.set("options", options);
+
+            ScheduledFuture<?> deadline = timeoutMs > 0
+                    ? WATCHDOG.schedule(() -> killTree(w.process), Math.max(1, left), TimeUnit.MILLISECONDS) : null;
+            Reply<T> reply;
+            try {
+                reply = w.call(req, reader);
+            } catch (IOException e) {
+                discard(w);                              // crashed mid-job or stream out of sync: replace it
+                if (deadline != null && !deadline.cancel(false)) throw new ConversionTimeoutException(timeoutMs);
+                throw e;
+            }
+            if (deadline != null && !deadline.cancel(false)) { // fired as the reply completed: the process is gone anyway
+                discard(w);
+                throw new ConversionTimeoutException(timeoutMs);
+            }
+            release(w);
+            if (!reply.ok) throw new IOException("docling failed: " + (reply.error != null ? reply.error : "unknown error"));
+            return reply.document;
+        } finally {
+            queueSlots.release();
+        }
+    }
+
+    public int size() { return size; }
+    public int live() { return all.size(); }
+    public int idle() { return idle.size(); }
+
+    @Override
+    public void close() {
+        closed = true;
+        housekeeping.shutdownNow();
+        for (Worker w : all) w.destroy();
+        all.clear();
+        idle.clear();
+    }
+
+    // ---------- worker lifecycle ----------
+
+    private void release(Worker w) {
+        if (closed || !w.process.isAlive()) discard(w);
+        else idle.offer(w);
+    }
+
+    private void discard(Worker w) {
+        all.remove(w);
+        w.destroy();
+        replenish();
+    }
+
+    /** Start workers (off the caller's thread) until live + starting reaches the configured size. */
+    private void replenish() {
+        while (!closed && all.size() + starting.get() < size) {
+            starting.incrementAndGet();
+            try {
+                housekeeping.execute(this::startOne);
+            } catch (RejectedExecutionException e) {
+                starting.decrementAndGet();              // shutting down
+                return;
+            }
+        }
+    }
+
+    private void startOne() {
+        try {
+            long t0 = System.nanoTime();
+            Worker w = new Worker(command);
+            onStarted.accept(System.nanoTime() - t0);
+            if (closed) { w.destroy(); return; }
+            all.add(w);
+            idle.offer(w);
+        } catch (IOException e) {
+            // python missing or runner broken; the next health tick retries
+        } finally {
+            starting.decrementAndGet();
+        }
+    }
+
+    /** Ping every idle worker once; replace the ones that died or stopped answering. */
+    private void healthCheck() {
+        for (int i = idle.size(); i > 0; i--) {
+            Worker w = idle.poll();
+            if (w == null) break;
+            boolean ok;
+            ScheduledFuture<?> deadline = WATCHDOG.schedule(() -> killTree(w.process), pingTimeoutMs, TimeUnit.MILLISECONDS);
+            try {                                        // a wedged worker is killed, so the read below returns
+                ok = w.process.isAlive() && w.call(M.createObjectNode().put("id", "ping").put("op", "ping"), SKIP).ok;
+            } catch (IOException e) {
+                ok = false;
+            }
+            if (!deadline.cancel(false)) ok = false;
+            if (ok) release(w); else discard(w);
+        }
+        replenish();
+    }
+
+    private static final DocumentReader<Void> SKIP = p -> { p.skipChildren(); return null; };
+
+    private record Reply<T>(boolean ok, String error, T document) { }
+
+    /** One runner process; used by a single caller at a time. */
+    static final class Worker {
+        final Process process;
+        private final OutputStream stdin;
+        private final JsonParser stdout;
+
+        Worker(List<String> command) throws IOException {
+            process = new ProcessBuilder(command)
+                    .redirectError(ProcessBuilder.Redirect.INHERIT)   // runner logs go to our stderr, never into the protocol
+                    .directory(new File(".")).start();
+            stdin = process.getOutputStream();
+            stdout = M.getFactory().createParser(process.getInputStream());
+            try {
+                if (!receive(SKIP).ok) throw new IOException("docling worker did not report ready");
+            } catch (IOException e) {
+                destroy();
+                throw e;
+            }
+        }
+
+        <T> Reply<T> call(ObjectNode req, DocumentReader<T> reader) throws IOException {
+            stdin.write(M.writeValueAsBytes(req));
+            stdin.write('\n');
+            stdin.flush();
+            return receive(reader);
+        }
+
+        /** Responses are concatenated root-level objects on stdout: {"id":..,"ok":..,"error":..,"document":{..}} */
+        private <T> Reply<T> receive(DocumentReader<T> reader) throws IOException {
+            if (stdout.nextToken() == null) throw new EOFException("docling worker exited");
+            if (!stdout.isExpectedStartObjectToken()) throw new IOException("docling worker protocol error");
+            boolean ok = false;
+            String error = null;
+            T document = null;
+            while (stdout.nextToken() == JsonToken.FIELD_NAME) {
+                String name = stdout.currentName();
+                stdout.nextToken();
+                switch (name) {
+                    case "ok" -> ok = stdout.getValueAsBoolean();
+                    case "error" -> error = stdout.getValueAsString();
+                    case "document" -> document = reader.read(stdout);
+                    default -> stdout.skipChildren();
+                }
+            }
+            return new Reply<>(ok, error, document);
+        }
+
+        void destroy() {
+            try { stdout.close(); } catch (IOException ignored) { }
+            killTree(process);
+        }
+    }
+
+    /** Kill {@code p} and everything it started: Docling can fork OCR and model helpers that outlive a plain destroy. */
+    static void killTree(Process p) {
+        p.descendants().forEach(ProcessHandle::destroyForcibly);
+        p.destroyForcibly();
+    }
+}
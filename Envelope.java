@@ -0,0 +1,118 @@
+package com.acme.pdf.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * A finished extraction, either just built (tree) or straight from the cache (serialized JSON). Callers pick the
+ * top-level parts they want and write them to any JsonGenerator (JSON, Smile, CBOR). Only cache hits avoid a tree:
+ * their bytes are filtered token by token, so a skipped multi-MB "docling" member is never materialized. A fresh
+ * extraction is a tree (the Docling document is remapped and merged in memory); only its selected members are
+ * written, but the whole of it was serialized once for the cache.
+ */
+public final class Envelope {
+    private static final ObjectMapper M = new ObjectMapper();
+
+    /** Always written once a caller picks parts: enough to render the form. */
+    public static final Set<String> CORE_PARTS = Set.of("schema", "uiHints", "layout");
+
+    private final ObjectNode tree;
+    private final byte[] json;
+    private ObjectNode timings; // per-request breakdown, written last when set
+
+    private Envelope(ObjectNode tree, byte[] json) {
+        this.tree = tree;
+        this.json = json;
+    }
+
+    static Envelope of(ObjectNode tree) {
+        return new Envelope(tree, null);
+    }
+
+    static Envelope of(byte[] json) {
+        return new Envelope(null, json);
+    }
+
+    /**
+     * {@code include} request parameter -> parts to write. Absent means everything (null), the shape existing
+     * clients render provenance and docling from; a list means the core parts plus whatever is listed
+     * (e.g. "provenance", or "layout" for just the core); "*" or "all" also means everything.
+     */
+    public static Set<String> parts(String include) {
+        if (include == null || include.isBlank()) return null;
+        Set<String> parts = new HashSet<>(CORE_PARTS);
+        for (String p : include.split(",")) {
+            p = p.trim();
+            if (p.equals("*") || p.equalsIgnoreCase("all")) return null;
+            if (!p.isEmpty()) parts.add(p);
+        }
+        return parts;
+    }
+
+    /** Append a "timings" member to what writeTo produces (not part of the cached envelope). */
+    public Envelope withTimings(ObjectNode timings) {
+        this.timings = timings;
+        return this;
+    }
+
+    /** Write the selected top-level members ({@code parts} null = all) as one object. */
+    public void writeTo(JsonGenerator g, Set<String> parts) throws IOException {
+        g.writeStartObject();
+        if (tree != null) {
+            for (Iterator<Map.Entry<String, JsonNode>> it = tree.fields(); it.hasNext(); ) {
+                Map.Entry<String, JsonNode> e = it.next();
+                if (parts != null && !parts.contains(e.getKey())) continue;
+                g.writeFieldName(e.getKey());
+                g.writeTree(e.getValue());
+            }
+        } else {
+            try (JsonParser p = M.getFactory().createParser(json)) {
+                if (p.nextToken() != JsonToken.START_OBJECT) throw new IOException("cached envelope is not an object");
+                while (p.nextToken() == JsonToken.FIELD_NAME) {
+                    String name = p.getCurrentName();
+                    p.nextToken();
+                    if (parts != null && !parts.contains(name)) {
+                        p.skipChildren();
+                        continue;
+                    }
+                    g.writeFieldName(name);
+                    g.copyCurrentStructure(p);
+                }
+            }
+        }
+        if (timings != null) {
+            g.writeFieldName("timings");
+            g.writeTree(timings);
+        }
+        g.writeEndObject();
+    }
+
+    /** The whole envelope serialized, for callers that keep it (jobs); a cache hit's bytes are returned as they are. */
+    public byte[] toBytes() throws IOException {
+        if (json != null && timings == null) return json;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (JsonGenerator g = M.getFactory().createGenerator(out)) {
+            writeTo(g, null);
+        }
+        return out.toByteArray();
+    }
+
+    /** Tree view for callers that embed the envelope (batch lines). A fresh tree is trimmed in place. */
+    public ObjectNode toTree(Set<String> parts) throws IOException {
+        if (tree != null) return parts == null ? tree : tree.retain(parts);
+        if (parts == null) return (ObjectNode) M.readTree(json);
+        try (TokenBuffer buf = new TokenBuffer(M, false)) {
+            writeTo(buf, parts);
+            return M.readTree(buf.asParser());
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.acme.pdf.bench;
+
+import com.acme.pdf.service.DoclingClient;
+import com.acme.pdf.service.DoclingHeadingReader;
+import com.acme.pdf.service.PdfBoxExtractor;
+import com.acme.pdf.util.IoUtils;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of each hot stage on synthetic forms; run through main() to get the GC profiler's
+ * gc.alloc.rate.norm (bytes allocated per operation) next to every score.
+ *
+ *   java -cp <classpath> com.acme.pdf.bench.ExtractionBenchmark [jmh options, e.g. -p pages=200]
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@State(Scope.Benchmark)
+public class ExtractionBenchmark {
+    private static final ObjectMapper M = new ObjectMapper();
+
+    @Param({"1", "20", "200"}) public int pages;
+    @Param({"40"}) public int fieldsPerPage;
+    @Param({"4"}) public int headingsPerPage;
+    @Param({"25"}) public int paragraphsPerPage;   // grows the Docling fixture without adding headings
+
+    private final PdfBoxExtractor extractor = new PdfBoxExtractor();
+    private final DoclingClient docling = new DoclingClient();
+
+    private File pdf;
+    private PdfBoxExtractor.Harvest harvest;
+    private ObjectNode doclingTree;
+    private byte[] doclingBytes;
+    private ArrayNode headings;
+    private String[] rawNames;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        SyntheticFormGenerator gen = new SyntheticFormGenerator(pages, fieldsPerPage, headingsPerPage);
+        pdf = gen.writePdf(File.createTempFile("bench-form-", ".pdf"));
+        harvest = extractor.harvest(pdf);
+        doclingTree = gen.doclingDocument(paragraphsPerPage);
+        doclingBytes = M.writeValueAsBytes(doclingTree);
+        headings = docling.headings(doclingTree);
+        rawNames = harvest.fields.values().stream().map(g -> g.originalName).toArray(String[]::new);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pdf.delete();
+    }
+
+    /** PDDocument.load + AcroForm walk (types, enums, widget pages). */
+    @Benchmark
+    public PdfBoxExtractor.Harvest harvest() throws Exception {
+        return extractor.harvest(pdf);
+    }
+
+    /** schema/uiHints/provenance + buildLayout from an existing harvest. */
+    @Benchmark
+    public ObjectNode envelopeFromHarvest() {
+        return extractor.toJsonEnvelope(harvest, headings);
+    }
+
+    /** The whole PDFBox side as /api/extract runs it. */
+    @Benchmark
+    public ObjectNode toJsonEnvelope() throws Exception {
+        return extractor.toJsonEnvelope(pdf, headings);
+    }
+
+    /** DoclingClient.headings over an already parsed tree. */
+    @Benchmark
+    public ArrayNode headingsFromTree() {
+        return docling.headings(doclingTree);
+    }
+
+    /** Parse runner output bytes into a tree, then extract headings (the non-streaming path end to end). */
+    @Benchmark
+    public ArrayNode headingsParseTree() throws IOException {
+        return docling.headings((ObjectNode) M.readTree(doclingBytes));
+    }
+
+    /** Streaming path: runner output bytes straight to headings. */
+    @Benchmark
+    public ArrayNode headingsStreaming() throws IOException {
+        try (JsonParser p = M.getFactory().createParser(doclingBytes)) {
+            return DoclingHeadingReader.read(p);
+        }
+    }
+
+    @Benchmark
+    public void sanitizeKey(Blackhole bh) {
+        for (String n : rawNames) bh.consume(IoUtils.sanitizeKey(n));
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .include(ExtractionBenchmark.class.getName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,217 @@
+package com.acme.pdf.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Content-addressed cache of finished extractions, keyed by the SHA-256 of the uploaded bytes.
+ * Values are the serialized envelope (including the raw Docling document).
+ * Tier 1 is an in-memory LRU bounded by entries and bytes; tier 2 is a size-bounded directory that survives restarts.
+ */
+@Service
+public class ExtractionCache {
+    private static final ObjectMapper M = new ObjectMapper();
+
+    @Value("${extract.cache.enabled:true}") private boolean enabled;
+    @Value("${extract.cache.ttlSeconds:86400}") private long ttlSeconds;
+    @Value("${extract.cache.memory.maxEntries:256}") private int memMaxEntries;
+    @Value("${extract.cache.memory.maxBytes:268435456}") private long memMaxBytes;
+    @Value("${extract.cache.disk.dir:${java.io.tmpdir}/pdf-extract-cache}") private String diskDir;
+    @Value("${extract.cache.disk.maxBytes:2147483648}") private long diskMaxBytes;
+
+    private record Entry(byte[] bytes, long storedAt) { }
+
+    private final LinkedHashMap<String, Entry> mem = new LinkedHashMap<>(64, 0.75f, true); // access order = LRU
+    private long memBytes;
+    private Path dir;
+    private final AtomicLong diskBytes = new AtomicLong();
+    private final ReentrantLock diskLock = new ReentrantLock(); // directory scans and deletes; not a monitor, they block
+
+    private final AtomicLong memHits = new AtomicLong(), diskHits = new AtomicLong(), misses = new AtomicLong(),
+            puts = new AtomicLong(), evictions = new AtomicLong();
+
+    @PostConstruct
+    void init() throws IOException {
+        if (!enabled) return;
+        dir = Paths.get(diskDir);
+        Files.createDirectories(dir);
+        try (Stream<Path> files = Files.list(dir)) {
+            files.forEach(f -> {
+                if (f.getFileName().toString().endsWith(".tmp")) deleteQuietly(f); // torn write from a previous run
+                else diskBytes.addAndGet(sizeOf(f));
+            });
+        }
+        trimDisk();
+    }
+
+    /** False when extract.cache.enabled is off: callers can skip serializing what put() would drop. */
+    public boolean enabled() {
+        return enabled;
+    }
+
+    /** Cached envelope bytes for this content hash, or null on miss. */
+    public byte[] get(String sha256) {
+        if (!enabled) return null;
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            Entry e = mem.get(sha256);
+            if (e != null) {
+                if (!expired(e.storedAt, now)) {
+                    memHits.incrementAndGet();
+                    return e.bytes;
+                }
+                removeMem(sha256);
+            }
+        }
+
+        Path f = fileFor(sha256);
+        try {
+            FileTime mtime = Files.getLastModifiedTime(f);
+            if (expired(mtime.toMillis(), now)) {
+                deleteDisk(f);
+            } else {
+                byte[] bytes = Files.readAllBytes(f);
+                putMem(sha256, new Entry(bytes, mtime.toMillis()));
+                diskHits.incrementAndGet();
+                return bytes;
+            }
+        } catch (NoSuchFileException e) {
+            // plain miss
+        } catch (IOException e) {
+            deleteDisk(f); // unreadable entry: drop it and recompute
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    public void put(String sha256, byte[] envelope) {
+        if (!enabled) return;
+        puts.incrementAndGet();
+        putMem(sha256, new Entry(envelope, System.currentTimeMillis()));
+        if (envelope.length > diskMaxBytes) return;
+
+        Path f = fileFor(sha256);
+        Path tmp = null;
+        try {
+            tmp = Files.createTempFile(dir, sha256 + ".", ".tmp"); // unique per writer; purged at startup if torn
+            long before = Files.exists(f) ? sizeOf(f) : 0;
+            Files.write(tmp, envelope);
+            Files.move(tmp, f, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            diskBytes.addAndGet(envelope.length - before);
+        } catch (IOException e) {
+            if (tmp != null) deleteQuietly(tmp); // disk tier is best effort; memory tier still holds the entry
+        }
+        trimDisk();
+    }
+
+    public void clear() {
+        synchronized (this) {
+            mem.clear();
+            memBytes = 0;
+        }
+        if (dir == null) return;
+        diskLock.lock();
+        try (Stream<Path> files = Files.list(dir)) {
+            files.forEach(this::deleteDisk);
+        } catch (IOException ignored) {
+        } finally {
+            diskLock.unlock();
+        }
+    }
+
+    public ObjectNode stats() {
+        ObjectNode s = M.createObjectNode();
+        s.put("enabled", enabled);
+        s.put("memoryHits", memHits.get());
+        s.put("diskHits", diskHits.get());
+        s.put("misses", misses.get());
+        s.put("puts", puts.get());
+        s.put("evictions", evictions.get());
+        synchronized (this) {
+            s.put("memoryEntries", mem.size());
+            s.put("memoryBytes", memBytes);
+        }
+        s.put("diskBytes", diskBytes.get());
+        return s;
+    }
+
+    // ---------- tiers ----------
+
+    private synchronized void putMem(String key, Entry e) {
+        if (e.bytes.length > memMaxBytes) return;
+        removeMem(key);
+        mem.put(key, e);
+        memBytes += e.bytes.length;
+        Iterator<Map.Entry<String, Entry>> it = mem.entrySet().iterator();
+        while ((mem.size() > memMaxEntries || memBytes > memMaxBytes) && it.hasNext()) {
+            memBytes -= it.next().getValue().bytes.length; // eldest = least recently used
+            it.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    private void removeMem(String key) {
+        Entry old = mem.remove(key);
+        if (old != null) memBytes -= old.bytes.length;
+    }
+
+    /** Drop least recently written files until the directory fits its budget. */
+    private void trimDisk() {
+        if (diskBytes.get() <= diskMaxBytes) return;
+        diskLock.lock();
+        try {
+            List<Path> files;
+            try (Stream<Path> s = Files.list(dir)) {
+                files = new ArrayList<>(s.filter(p -> p.toString().endsWith(".json")).toList());
+            } catch (IOException e) {
+                return;
+            }
+            files.sort(Comparator.comparingLong(ExtractionCache::mtimeOf));
+            for (Path f : files) {
+                if (diskBytes.get() <= diskMaxBytes) break;
+                deleteDisk(f);
+                evictions.incrementAndGet();
+            }
+        } finally {
+            diskLock.unlock();
+        }
+    }
+
+    private void deleteDisk(Path f) {
+        long size = sizeOf(f);
+        try {
+            if (Files.deleteIfExists(f)) diskBytes.addAndGet(-size);
+        } catch (IOException ignored) { }
+    }
+
+    private boolean expired(long storedAt, long now) {
+        return ttlSeconds > 0 && now - storedAt > ttlSeconds * 1000;
+    }
+
+    private Path fileFor(String sha256) {
+        return dir.resolve(sha256 + ".json");
+    }
+
+    private static long sizeOf(Path f) {
+        try { return Files.size(f); } catch (IOException e) { return 0; }
+    }
+
+    private static long mtimeOf(Path f) {
+        try { return Files.getLastModifiedTime(f).toMillis(); } catch (IOException e) { return 0; }
+    }
+
+    private static void deleteQuietly(Path f) {
+        try { Files.deleteIfExists(f); } catch (IOException ignored) { }
+    }
+}
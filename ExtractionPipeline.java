@@ -0,0 +1,177 @@
+package com.acme.pdf.service;
+
+import com.acme.pdf.util.IoUtils;
+import com.acme.pdf.util.VirtualThreads;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * upload -> envelope. Heading detection (heading.engine: Docling, PDFBox text runs, or auto) and the AcroForm
+ * harvest are independent, so they run side by side and only join for buildLayout, which needs both. With the
+ * template cache or docling.formPagesOnly on, the harvest goes first instead: a known form template reuses its
+ * headings and no engine runs, and otherwise the engine only looks at the pages that carry widgets. The template
+ * cache is on by default (repeat templates are most of the traffic); formPagesOnly is opt-in, for multi-page
+ * packets with few form pages, as it serializes the harvest on every cold request.
+ */
+@Service
+public class ExtractionPipeline {
+    private static final ObjectMapper M = new ObjectMapper();
+
+    @Autowired PdfBoxExtractor pdfBox;
+    @Autowired ExtractionCache cache;
+    @Autowired TemplateCache templates;
+    @Autowired PipelineMetrics metrics;
+    @Autowired Bulkheads bulkheads;
+    @Autowired List<HeadingEngine> engines;
+    @Autowired DoclingClient docling;
+
+    @Value("${docling.streaming:false}") private boolean streaming;   // headings only, raw Docling JSON left out of the envelope
+    @Value("${docling.formPagesOnly:false}") private boolean formPagesOnly; // convert only pages that hold widgets
+    @Value("${heading.engine:docling}") private String engineName;    // pdfbox | docling | auto, see HeadingEngine
+
+    private ExecutorService harvestPool;
+    private HeadingEngine engine;
+
+    @PostConstruct
+    void start() {
+        engine = engines.stream().filter(e -> e.name().equals(engineName)).findFirst()
+                .orElseThrow(() -> new IllegalStateException("unknown heading.engine: " + engineName));
+        harvestPool = VirtualThreads.perTask("pdfbox-harvest"); // the cpu bulkhead bounds the actual work
+    }
+
+    @PreDestroy
+    void stop() {
+        harvestPool.shutdownNow();
+    }
+
+    /** Stage callback for long-running callers; may be invoked from the harvest thread. */
+    @FunctionalInterface
+    public interface Progress {
+        Progress NONE = stage -> { };
+        void stage(String name); // docling_running | headings_running | fields_harvested | layout_built | cache_hit | template_hit
+    }
+
+    public ObjectNode extract(File pdf) throws Exception {
+        return extract(pdf, Progress.NONE);
+    }
+
+    public ObjectNode extract(File pdf, Progress progress) throws Exception {
+        return extract(pdf, IoUtils.sha256Hex(pdf), progress);
+    }
+
+    /** {@code sha256} of the file's bytes when the caller already has it (UploadSpool hashes while spooling). */
+    public ObjectNode extract(File pdf, String sha256, Progress progress) throws Exception {
+        return envelope(pdf, sha256, progress).toTree(null);
+    }
+
+    /** Like extract, but a cache hit stays serialized so the caller can project and stream it without a tree. */
+    public Envelope envelope(File pdf, String sha256, Progress progress) throws Exception {
+        return envelope(pdf, sha256, progress, null);
+    }
+
+    /** @param timings per-request stage breakdown to fill in (see PipelineMetrics for the stage names), or null */
+    public Envelope envelope(File pdf, String sha256, Progress progress, Timings timings) throws Exception {
+        long started = System.nanoTime();
+        String outcome = "error";
+        metrics.inFlight.incrementAndGet();
+        try {
+            // same bytes -> same answer: skip Docling + PDFBox entirely on a hit
+            String key = sha256 + (streaming ? "-headings" : "") + (engine instanceof DoclingHeadingEngine ? "" : "-" + engine.name());
+            byte[] cached = cache.get(key);
+            if (cached != null) {
+                progress.stage("cache_hit");
+                outcome = "cache_hit";
+                return Envelope.of(cached);
+            }
+
+            boolean harvestFirst = templates.enabled() || formPagesOnly;
+            // harvest joined before the engine runs anyway: let its load serve Docling's pre-scan too
+            DoclingProfile.Scanner scanner = harvestFirst && !(engine instanceof PdfBoxHeadingEngine) && docling.available()
+                    ? docling::prescan : null;
+            Future<PdfBoxExtractor.Harvest> harvest = harvestPool.submit(() -> {
+                PdfBoxExtractor.Harvest h = bulkheads.cpu(timings, () -> pdfBox.harvest(pdf, timings, scanner));
+                metrics.document(pdf.length(), h.pageHeights.length, h.fields.size());
+                progress.stage("fields_harvested");
+                return h;
+            });
+            PdfBoxExtractor.Harvest early = harvestFirst ? join(harvest) : null;
+            if (early != null && templates.enabled()) {
+                ArrayNode known = templates.get(early);
+                if (known != null) {
+                    progress.stage("template_hit");
+                    ObjectNode envelope = layout(early, known, timings);
+                    ((ObjectNode) envelope.get("provenance")).put("templateHit", true);
+                    progress.stage("layout_built");
+                    outcome = "template_hit";
+                    return Envelope.of(envelope); // not content-cached: there is no Docling document to go with it
+                }
+            }
+            int[] pages = early != null && formPagesOnly ? formPages(early) : null; // null = all pages
+            progress.stage(engine instanceof DoclingHeadingEngine ? "docling_running" : "headings_running");
+            HeadingEngine.Result found;
+            try {
+                found = engine.find(pdf, pages, early != null ? early.prescan : null, timings);
+            } catch (Exception e) {
+                harvest.cancel(true);
+                throw e;
+            }
+            PdfBoxExtractor.Harvest h = join(harvest);
+            ObjectNode envelope = layout(h, found.ok() ? found.headings() : M.createArrayNode(), timings);
+            ObjectNode provenance = (ObjectNode) envelope.get("provenance");
+            provenance.put("headingEngine", found.engine());
+            if (!found.ok()) provenance.put("doclingFailed", true);    // PDFBox-only, no headings (whichever engine ran)
+            if (found.pages() != null) {
+                ArrayNode examined = provenance.putArray("doclingPages");
+                for (int p : found.pages()) examined.add(p);
+            }
+            progress.stage("layout_built");
+
+            // include docling raw for the agent (optional but requested earlier)
+            if (found.document() != null) envelope.set("docling", found.document());
+            if (found.ok()) {                                        // don't pin a failed run
+                long t = System.nanoTime();
+                if (cache.enabled()) cache.put(key, M.writeValueAsBytes(envelope)); // all parts: a later hit may want any
+                templates.put(h, found.headings());
+                metrics.stage("cache_store", t, timings);
+            }
+            outcome = found.ok() ? found.engine() : found.engine() + "_failed";
+            return Envelope.of(envelope);
+        } finally {
+            metrics.inFlight.decrementAndGet();
+            metrics.extraction(outcome, started);
+        }
+    }
+
+    /** Pages holding widgets when they are a strict subset of the document, else null (examine everything). */
+    private static int[] formPages(PdfBoxExtractor.Harvest h) {
+        int[] pages = h.formPages();
+        return pages.length == 0 || pages.length >= h.pageHeights.length ? null : pages;
+    }
+
+    private ObjectNode layout(PdfBoxExtractor.Harvest h, ArrayNode headings, Timings timings) throws Exception {
+        return bulkheads.cpu(timings, () -> {
+            long t = System.nanoTime();
+            ObjectNode envelope = pdfBox.toJsonEnvelope(h, headings);
+            metrics.stage("layout", t, timings);
+            return envelope;
+        });
+    }
+
+    private static <T> T join(Future<T> f) throws Exception {
+        try {
+            return f.get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        }
+    }
+}
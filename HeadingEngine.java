@@ -0,0 +1,37 @@
+package com.acme.pdf.service;
+
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.File;
+
+/**
+ * Finds the section headings buildLayout groups fields under. heading.engine picks one:
+ * "docling" (Python + layout models, any PDF), "pdfbox" (font size / weight of text runs, no subprocess, needs a
+ * text layer) or "auto" (pdfbox when it finds headings in a text layer, docling otherwise).
+ */
+public interface HeadingEngine {
+
+    /**
+     * @param engine   name of the engine that produced the answer (auto reports the one it used)
+     * @param headings [{title,level,page,bbox:{x,y,w,h[,origin]}}] in the uploaded document's page numbers,
+     *                 null when the engine failed or could not read the document
+     * @param document the engine's full document for the envelope, if it has one (Docling's JSON)
+     * @param pages    the pages actually examined, null = all
+     */
+    record Result(String engine, ArrayNode headings, ObjectNode document, int[] pages) {
+        public boolean ok() {
+            return headings != null;
+        }
+    }
+
+    String name();
+
+    /** @param pages 1-based pages worth examining (those holding widgets), ascending; null = all */
+    Result find(File pdf, int[] pages, Timings timings) throws Exception;
+
+    /** As above, with the harvest's look at sampled pages of {@code pdf} (null = none) for engines that use one. */
+    default Result find(File pdf, int[] pages, DoclingProfile.Prescan scan, Timings timings) throws Exception {
+        return find(pdf, pages, timings);
+    }
+}
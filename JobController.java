@@ -0,0 +1,64 @@
+package com.acme.pdf.controller;
+
+import com.acme.pdf.service.JobService;
+import com.acme.pdf.service.UploadSpool;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.concurrent.RejectedExecutionException;
+
+/** Async variant of /api/extract: submit, then poll or subscribe to stage events. */
+@RestController
+@RequestMapping("/api/jobs")
+public class JobController {
+    private static final ObjectMapper M = new ObjectMapper();
+
+    @Autowired JobService jobs;
+    @Autowired UploadSpool spool;
+
+    @PostMapping(consumes=MediaType.MULTIPART_FORM_DATA_VALUE, produces=MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<ObjectNode> submit(@RequestParam("file") MultipartFile file) throws Exception {
+        UploadSpool.Handle pdf = spool.adopt(file.getSize(), file::transferTo); // spool full -> 503, too large -> 413
+        JobService.Job job;
+        try {
+            job = jobs.submit(pdf);
+        } catch (RejectedExecutionException e) {
+            ObjectNode busy = M.createObjectNode().put("error", "job queue is full, retry later");
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header("Retry-After", "5").body(busy);
+        }
+        ObjectNode body = M.createObjectNode();
+        body.put("id", job.id);
+        body.put("statusUrl", "/api/jobs/" + job.id);
+        body.put("eventsUrl", "/api/jobs/" + job.id + "/events");
+        return ResponseEntity.accepted().body(body);
+    }
+
+    @GetMapping(value="/{id}", produces=MediaType.APPLICATION_JSON_VALUE)
+    public ObjectNode status(@PathVariable String id) {
+        return find(id).toJson();
+    }
+
+    @GetMapping(value="/{id}/events", produces=MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter events(@PathVariable String id) {
+        return jobs.events(find(id));
+    }
+
+    @GetMapping(value="/stats", produces=MediaType.APPLICATION_JSON_VALUE)
+    public ObjectNode stats() {
+        return jobs.stats();
+    }
+
+    private JobService.Job find(String id) {
+        JobService.Job job = jobs.get(id);
+        if (job == null) throw new ResponseStatusException(HttpStatus.NOT_FOUND, "unknown job " + id);
+        return job;
+    }
+}
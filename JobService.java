@@ -0,0 +1,293 @@
+package com.acme.pdf.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Asynchronous extractions: a bounded queue in front of a fixed set of job threads.
+ * Submissions beyond the queue are rejected up front (admission control) instead of piling up servlet threads.
+ * Each job keeps its stage history so SSE subscribers that connect late still see every step; events are sent
+ * outside the job's lock, so a slow subscriber never holds up the pipeline thread reporting the next stage.
+ * Finished jobs are kept for jobs.retentionSeconds, at most jobs.maxRetained of them and jobs.maxRetainedBytes of
+ * results; a result is held serialized (an envelope tree with its Docling document is several times larger) and
+ * only parsed when a poll asks for it.
+ */
+@Service
+public class JobService {
+    private static final ObjectMapper M = new ObjectMapper();
+
+    @Autowired ExtractionPipeline pipeline;
+
+    @Value("${jobs.workers:4}") private int workers;
+    @Value("${jobs.queueCapacity:32}") private int queueCapacity;
+    @Value("${jobs.retentionSeconds:600}") private long retentionSeconds; // finished jobs are forgotten after this
+    @Value("${jobs.maxRetained:1000}") private int maxRetained;           // ... or once this many newer ones finished
+    @Value("${jobs.maxRetainedBytes:268435456}") private long maxRetainedBytes; // ... or their results add up to more
+    @Value("${jobs.sseTimeoutMs:600000}") private long sseTimeoutMs;
+
+    public enum Status { QUEUED, RUNNING, DONE, FAILED }
+
+    public static class Job {
+        public final String id = UUID.randomUUID().toString();
+        public final long createdAt = System.currentTimeMillis();
+        private Status status = Status.QUEUED;
+        private String stage = "queued";
+        private long finishedAt;
+        private byte[] result;  // serialized envelope
+        private String error;
+        private final List<ObjectNode> events = new ArrayList<>();
+        private final List<Subscriber> subscribers = new ArrayList<>();
+
+        /** status view (result included once done) */
+        public ObjectNode toJson() {
+            ObjectNode n = M.createObjectNode();
+            byte[] r;
+            synchronized (this) {
+                n.put("id", id);
+                n.put("status", status.name());
+                n.put("stage", stage);
+                n.put("createdAt", createdAt);
+                if (finishedAt > 0) n.put("finishedAt", finishedAt);
+                if (error != null) n.put("error", error);
+                r = result;
+            }
+            if (r != null) {
+                try {
+                    n.set("result", M.readTree(r));   // parsed outside the lock: the job's events don't wait on it
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e); // cannot happen: we serialized it
+                }
+            }
+            return n;
+        }
+
+        synchronized long resultBytes() {
+            return result != null ? result.length : 0;
+        }
+
+        void stage(String name) {
+            List<ObjectNode> history;
+            List<Subscriber> to;
+            synchronized (this) {
+                history = record(name);
+                to = List.copyOf(subscribers);
+            }
+            deliver(to, history);
+        }
+
+        synchronized void running() {
+            status = Status.RUNNING;
+        }
+
+        void finish(byte[] result, String error) {
+            List<ObjectNode> history;
+            List<Subscriber> to;
+            synchronized (this) {
+                this.status = error == null ? Status.DONE : Status.FAILED;
+                this.result = result;
+                this.error = error;
+                this.finishedAt = System.currentTimeMillis();
+                history = record(error == null ? "done" : "failed");
+                to = List.copyOf(subscribers);
+                subscribers.clear();
+            }
+            deliver(to, history);
+            to.forEach(s -> s.emitter.complete());
+        }
+
+        void subscribe(SseEmitter e) {
+            Subscriber s = new Subscriber(e);
+            List<ObjectNode> history;
+            boolean finished;
+            synchronized (this) {
+                history = List.copyOf(events);
+                finished = finishedAt > 0;
+                if (!finished) subscribers.add(s);   // from here on stage() catches it up too, in order
+            }
+            e.onCompletion(() -> unsubscribe(s));
+            e.onTimeout(() -> unsubscribe(s));
+            if (!s.catchUp(history)) unsubscribe(s);
+            else if (finished) e.complete();
+        }
+
+        private synchronized void unsubscribe(Subscriber s) {
+            subscribers.remove(s);
+        }
+
+        /** Append a stage event; returns the history to deliver. Caller holds the lock. */
+        private List<ObjectNode> record(String name) {
+            stage = name;
+            ObjectNode ev = M.createObjectNode();
+            ev.put("stage", name);
+            ev.put("status", status.name());
+            ev.put("at", System.currentTimeMillis());
+            events.add(ev);
+            return List.copyOf(events);
+        }
+
+        private void deliver(List<Subscriber> to, List<ObjectNode> history) {
+            for (Subscriber s : to) {
+                if (!s.catchUp(history)) unsubscribe(s);
+            }
+        }
+    }
+
+    /**
+     * One SSE client; remembers how much of the history it has been sent, so events arrive once and in order.
+     * Guarded by a ReentrantLock, not synchronized: send() blocks on a slow client, and a virtual thread blocking
+     * inside a monitor pins its carrier.
+     */
+    private static final class Subscriber {
+        final SseEmitter emitter;
+        private final ReentrantLock lock = new ReentrantLock();
+        private int sent;
+        private boolean gone;
+
+        Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        /** Send whatever of {@code history} this client hasn't had yet; false once it has gone away. */
+        boolean catchUp(List<ObjectNode> history) {
+            lock.lock();
+            try {
+                while (!gone && sent < history.size()) {
+                    try {
+                        emitter.send(SseEmitter.event().name("stage").data(history.get(sent).toString()));
+                        sent++;
+                    } catch (IOException | IllegalStateException ex) {
+                        gone = true; // client went away
+                    }
+                }
+                return !gone;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+    private ThreadPoolExecutor executor;
+    private ScheduledExecutorService reaper;
+
+    @PostConstruct
+    void start() {
+        executor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+                    Thread t = new Thread(r, "extract-job");
+                    t.setDaemon(true);
+                    return t;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        reaper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "extract-job-reaper");
+            t.setDaemon(true);
+            return t;
+        });
+        reaper.scheduleWithFixedDelay(this::reap, 30, 30, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        executor.shutdownNow();
+        reaper.shutdownNow();
+    }
+
+    /**
+     * Queue an extraction of an already spooled upload. The job owns {@code pdf} and closes it when done.
+     * @throws RejectedExecutionException when the queue is full
+     */
+    public Job submit(UploadSpool.Handle pdf) {
+        Job job = new Job();
+        job.stage("spooled");
+        jobs.put(job.id, job);
+        try {
+            executor.execute(() -> run(job, pdf));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.id);
+            pdf.close();
+            throw e;
+        }
+        return job;
+    }
+
+    public Job get(String id) {
+        return jobs.get(id);
+    }
+
+    /** SSE stream of stage events; replays history, completes when the job finishes. */
+    public SseEmitter events(Job job) {
+        SseEmitter e = new SseEmitter(sseTimeoutMs);
+        job.subscribe(e);
+        return e;
+    }
+
+    public ObjectNode stats() {
+        ObjectNode s = M.createObjectNode();
+        s.put("workers", workers);
+        s.put("active", executor.getActiveCount());
+        s.put("queued", executor.getQueue().size());
+        s.put("queueCapacity", queueCapacity);
+        s.put("tracked", jobs.size());
+        s.put("maxRetained", maxRetained);
+        long bytes = 0;
+        for (Job j : jobs.values()) bytes += j.resultBytes();
+        s.put("retainedBytes", bytes);
+        s.put("maxRetainedBytes", maxRetainedBytes);
+        return s;
+    }
+
+    private void run(Job job, UploadSpool.Handle pdf) {
+        job.running();
+        try {
+            job.finish(pipeline.envelope(pdf.file(), pdf.sha256(), job::stage).toBytes(), null);
+        } catch (Exception e) {
+            job.finish(null, e.getClass().getSimpleName() + ": " + e.getMessage());
+        } finally {
+            pdf.close();
+            trim();
+        }
+    }
+
+    private void reap() {
+        long cutoff = System.currentTimeMillis() - retentionSeconds * 1000;
+        jobs.values().removeIf(j -> {
+            synchronized (j) {
+                return j.finishedAt > 0 && j.finishedAt < cutoff;
+            }
+        });
+    }
+
+    /** Forget the oldest finished jobs beyond jobs.maxRetained / jobs.maxRetainedBytes: each holds a whole envelope. */
+    private void trim() {
+        List<Job> finished = new ArrayList<>();
+        long bytes = 0;
+        for (Job j : jobs.values()) {
+            synchronized (j) {
+                if (j.finishedAt == 0) continue;
+                finished.add(j);
+                bytes += j.resultBytes();
+            }
+        }
+        int count = finished.size();
+        if (count <= Math.max(0, maxRetained) && bytes <= maxRetainedBytes) return;
+        finished.sort(Comparator.comparingLong(j -> j.finishedAt));
+        for (Job j : finished) {
+            if (count <= Math.max(0, maxRetained) && bytes <= maxRetainedBytes) break;
+            jobs.remove(j.id);
+            count--;
+            bytes -= j.resultBytes();
+        }
+    }
+}
@@ -0,0 +1,366 @@
+package com.acme.pdf.bench;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * End-to-end load test of POST /api/extract, offline on one box. Starts the service (--app) with the Docling stub
+ * runner in place of the real one, uploads a corpus of SyntheticFormGenerator PDFs at each concurrency level for a
+ * fixed time, and reports throughput and latency percentiles of the successful requests (a fast 503 must not
+ * flatter the p99), errors, peak server heap (from /actuator/prometheus) and peak temp files held open by the
+ * server (spool, PDFBox scratch and Tomcat's multipart parts, from /proc). One JSON line per level is appended to --out, tagged
+ * with the git commit, so runs can be compared across commits.
+ *
+ *   java -cp <classpath> com.acme.pdf.bench.LoadTest --app="java -Xmx1g -jar target/pdf-service.jar" \
+ *       --concurrency=1,4,16,64 --seconds=30 --stubDelayMs=400 --out=loadtest.jsonl
+ *
+ * Without --app it drives an already running service at --url (heap still scraped, temp files not counted).
+ * The content and template caches are switched off in the started service unless --cache=true: the corpus repeats.
+ */
+public final class LoadTest {
+    private static final ObjectMapper M = new ObjectMapper();
+    private static final String BOUNDARY = "----loadtest-boundary";
+
+    private final Map<String, String> opts;
+    private final HttpClient http = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+    private final Path work;
+    private Process app;
+    private String url;
+
+    private LoadTest(Map<String, String> opts) throws IOException {
+        this.opts = opts;
+        this.work = Files.createTempDirectory("loadtest-");
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> opts = new LinkedHashMap<>();
+        for (String a : args) {
+            if (!a.startsWith("--")) throw new IllegalArgumentException("expected --key=value, got " + a);
+            int eq = a.indexOf('=');
+            opts.put(eq < 0 ? a.substring(2) : a.substring(2, eq), eq < 0 ? "true" : a.substring(eq + 1));
+        }
+        LoadTest t = new LoadTest(opts);
+        Runtime.getRuntime().addShutdownHook(new Thread(t::stopApp, "loadtest-shutdown"));
+        try {
+            t.run();
+        } finally {
+            t.stopApp();
+        }
+    }
+
+    private void run() throws Exception {
+        List<byte[]> corpus = corpus();
+        url = opt("url", "http://localhost:" + opt("port", "18080"));
+        if (opts.containsKey("app")) startApp();
+        awaitReady(Duration.ofSeconds(num("startTimeoutSeconds", 180)));
+
+        int warmup = (int) num("warmupSeconds", 5);
+        if (warmup > 0) step(corpus, 2, warmup);     // JIT, pool workers, connection setup: not reported
+
+        String commit = commit();
+        Path out = Path.of(opt("out", "loadtest.jsonl"));
+        System.out.printf("%6s %7s %8s %8s %8s %8s %8s %7s %8s %7s %9s%n",
+                "conc", "reqs", "rps", "p50ms", "p95ms", "p99ms", "maxms", "err%", "heapMB", "tmpFds", "leftover");
+        for (String c : opt("concurrency", "1,2,4,8,16,32").split(",")) {
+            int concurrency = Integer.parseInt(c.trim());
+            ObjectNode r = step(corpus, concurrency, (int) num("seconds", 30));
+            r.put("commit", commit).put("at", Instant.now().toString());
+            r.set("config", M.valueToTree(opts));
+            System.out.printf("%6d %7d %8.1f %8.1f %8.1f %8.1f %8.1f %7.2f %8.1f %7d %9d%n",
+                    concurrency, r.get("requests").asLong(), r.get("rps").asDouble(),
+                    r.get("p50Ms").asDouble(), r.get("p95Ms").asDouble(), r.get("p99Ms").asDouble(), r.get("maxMs").asDouble(),
+                    r.get("errorRate").asDouble() * 100, r.get("peakHeapBytes").asLong() / 1048576.0,
+                    r.get("peakTempFds").asInt(), r.get("leftoverTempFiles").asInt());
+            Files.writeString(out, M.writeValueAsString(r) + "\n", StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        }
+    }
+
+    // ---------- corpus ----------
+
+    /** Multipart bodies of --docs generated forms, page counts cycling through --pages. */
+    private List<byte[]> corpus() throws IOException {
+        int docs = (int) num("docs", 20);
+        int fields = (int) num("fields", 40);
+        String[] pages = opt("pages", "1,5,20").split(",");
+        List<byte[]> bodies = new ArrayList<>();
+        Path dir = Files.createDirectories(work.resolve("corpus"));
+        for (int i = 0; i < docs; i++) {
+            int n = Integer.parseInt(pages[i % pages.length].trim());
+            File pdf = new SyntheticFormGenerator(n, fields, 4).writePdf(dir.resolve("form-" + i + ".pdf").toFile());
+            bodies.add(multipart(pdf.getName(), Files.readAllBytes(pdf.toPath())));
+        }
+        return bodies;
+    }
+
+    private static byte[] multipart(String name, byte[] pdf) {
+        String head = "--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"" + name + "\"\r\n"
+                + "Content-Type: application/pdf\r\n\r\n";
+        String tail = "\r\n--" + BOUNDARY + "--\r\n";
+        byte[] h = head.getBytes(StandardCharsets.US_ASCII), t = tail.getBytes(StandardCharsets.US_ASCII);
+        byte[] body = new byte[h.length + pdf.length + t.length];
+        System.arraycopy(h, 0, body, 0, h.length);
+        System.arraycopy(pdf, 0, body, h.length, pdf.length);
+        System.arraycopy(t, 0, body, h.length + pdf.length, t.length);
+        return body;
+    }
+
+    // ---------- one concurrency level ----------
+
+    private ObjectNode step(List<byte[]> corpus, int concurrency, int seconds) throws Exception {
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        AtomicLong next = new AtomicLong(), requests = new AtomicLong(), errors = new AtomicLong(), bytes = new AtomicLong();
+        Map<String, AtomicLong> statuses = new ConcurrentSkipListMap<>();
+        List<long[]> latencies = Collections.synchronizedList(new ArrayList<>());
+        Sampler sampler = new Sampler();
+        ExecutorService clients = Executors.newFixedThreadPool(concurrency, r -> {
+            Thread t = new Thread(r, "loadtest-client");
+            t.setDaemon(true);
+            return t;
+        });
+        long started = System.nanoTime();
+        sampler.start();
+        for (int c = 0; c < concurrency; c++) {
+            clients.execute(() -> {
+                long[] mine = new long[1024];
+                int n = 0;
+                while (System.nanoTime() < end) {
+                    byte[] body = corpus.get((int) (next.getAndIncrement() % corpus.size()));
+                    long t = System.nanoTime();
+                    String status;
+                    boolean ok = false;
+                    try {
+                        HttpResponse<InputStream> rsp = http.send(extractRequest(body), HttpResponse.BodyHandlers.ofInputStream());
+                        try (InputStream in = rsp.body()) {
+                            bytes.addAndGet(in.transferTo(OutputStream.nullOutputStream()));
+                        }
+                        status = Integer.toString(rsp.statusCode());
+                        ok = rsp.statusCode() / 100 == 2;
+                        if (!ok) errors.incrementAndGet();
+                    } catch (IOException e) {
+                        status = e.getClass().getSimpleName();
+                        errors.incrementAndGet();
+                    } catch (InterruptedException e) {
+                        break;
+                    }
+                    requests.incrementAndGet();
+                    if (ok) {                                       // latencies of successes only
+                        if (n == mine.length) mine = Arrays.copyOf(mine, n * 2);
+                        mine[n++] = System.nanoTime() - t;
+                    }
+                    statuses.computeIfAbsent(status, s -> new AtomicLong()).incrementAndGet();
+                }
+                latencies.add(Arrays.copyOf(mine, n));
+            });
+        }
+        clients.shutdown();
+        clients.awaitTermination(seconds + 600L, TimeUnit.SECONDS);  // let the last requests finish
+        double elapsed = (System.nanoTime() - started) / 1e9;
+        sampler.stop();
+
+        long[] ok = latencies.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+        ObjectNode r = M.createObjectNode();
+        r.put("concurrency", concurrency);
+        r.put("seconds", elapsed);
+        r.put("requests", requests.get());
+        r.put("ok", ok.length);
+        r.put("rps", ok.length / elapsed);                          // successful extractions per second
+        r.put("p50Ms", percentile(ok, 0.50));
+        r.put("p95Ms", percentile(ok, 0.95));
+        r.put("p99Ms", percentile(ok, 0.99));
+        r.put("maxMs", ok.length == 0 ? 0 : ok[ok.length - 1] / 1e6);
+        r.put("errorRate", requests.get() == 0 ? 0 : (double) errors.get() / requests.get());
+        r.put("responseBytes", bytes.get());
+        ObjectNode byStatus = r.putObject("statuses");
+        statuses.forEach((s, n) -> byStatus.put(s, n.get()));
+        r.put("peakHeapBytes", sampler.peakHeap);
+        r.put("peakTempFds", sampler.peakFds);
+        Thread.sleep(500);                                          // spool deletes happen after the response is sent
+        r.put("leftoverTempFiles", app != null ? tempFiles() : -1);
+        return r;
+    }
+
+    private HttpRequest extractRequest(byte[] body) {
+        return HttpRequest.newBuilder(URI.create(url + "/api/extract" + opt("query", "")))
+                .timeout(Duration.ofSeconds(num("requestTimeoutSeconds", 600)))
+                .header("Content-Type", "multipart/form-data; boundary=" + BOUNDARY)
+                .header("Accept", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+                .build();
+    }
+
+    private static double percentile(long[] sorted, double q) {
+        if (sorted.length == 0) return 0;
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(q * sorted.length) - 1)] / 1e6;
+    }
+
+    /** Polls server heap and temp-file descriptors while a level runs; keeps the peaks. */
+    private final class Sampler implements Runnable {
+        volatile long peakHeap = -1;
+        volatile int peakFds = -1;
+        private volatile boolean running = true;
+        private Thread thread;
+
+        void start() {
+            thread = new Thread(this, "loadtest-sampler");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        void stop() throws InterruptedException {
+            running = false;
+            thread.join();
+        }
+
+        @Override
+        public void run() {
+            long interval = num("sampleMs", 250);
+            while (running) {
+                peakHeap = Math.max(peakHeap, heapUsed());
+                if (app != null) peakFds = Math.max(peakFds, openTempFiles());
+                try {
+                    Thread.sleep(interval);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /** Sum of jvm_memory_used_bytes{area="heap"} from the Prometheus scrape, -1 when not exposed. */
+    private long heapUsed() {
+        try {
+            HttpResponse<Stream<String>> rsp = http.send(HttpRequest.newBuilder(URI.create(url + "/actuator/prometheus"))
+                    .timeout(Duration.ofSeconds(5)).build(), HttpResponse.BodyHandlers.ofLines());
+            if (rsp.statusCode() != 200) return -1;
+            try (Stream<String> lines = rsp.body()) {
+                return (long) lines.filter(l -> l.startsWith("jvm_memory_used_bytes{") && l.contains("area=\"heap\""))
+                        .mapToDouble(l -> Double.parseDouble(l.substring(l.lastIndexOf(' ') + 1)))
+                        .sum();
+            }
+        } catch (IOException | NumberFormatException e) {
+            return -1;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return -1;
+        }
+    }
+
+    /**
+     * The started server's file descriptors pointing into our work dir: spool files and page subsets, PDFBox
+     * scratch, multipart parts.
+     */
+    private int openTempFiles() {
+        try (Stream<Path> fds = Files.list(Path.of("/proc", Long.toString(app.pid()), "fd"))) {
+            return (int) fds.filter(fd -> {
+                try {
+                    return Files.readSymbolicLink(fd).startsWith(work.resolve("server"));
+                } catch (IOException e) {
+                    return false;                                   // closed between list and read
+                }
+            }).count();
+        } catch (IOException e) {
+            return -1;                                              // not Linux, or the server is gone
+        }
+    }
+
+    /** Files still on disk under the server's temp dirs once a level has drained: leaks. */
+    private int tempFiles() throws IOException {
+        try (Stream<Path> files = Files.walk(work.resolve("server"))) {
+            return (int) files.filter(Files::isRegularFile).count();
+        }
+    }
+
+    // ---------- the service ----------
+
+    private void startApp() throws IOException {
+        Path server = Files.createDirectories(work.resolve("server"));
+        String stub = new File(opt("stub", "docling_stub_runner.py")).getAbsolutePath();
+        List<String> command = new ArrayList<>(Arrays.asList(opts.get("app").trim().split("\\s+")));
+        command.add("--server.port=" + opt("port", "18080"));
+        command.add("--docling.pythonCmd=" + opt("python", "python3"));
+        command.add("--docling.scriptPath=" + stub);
+        command.add("--upload.spool.dir=" + server.resolve("spool"));
+        command.add("--pdf.memory.tempDir=" + Files.createDirectories(server.resolve("scratch")));
+        command.add("--spring.servlet.multipart.location=" + Files.createDirectories(server.resolve("multipart")));
+        command.add("--management.endpoints.web.exposure.include=health,prometheus");
+        if (!Boolean.parseBoolean(opt("cache", "false"))) {
+            command.add("--extract.cache.enabled=false");
+            command.add("--templates.enabled=false");
+        }
+        ProcessBuilder pb = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(work.resolve("app.log").toFile());      // a full pipe would stall the server
+        pb.environment().remove("DOC_PY_CMD");                           // would override docling.pythonCmd
+        pb.environment().put("STUB_DELAY_MS", opt("stubDelayMs", "300"));
+        pb.environment().put("STUB_PAGES", opt("stubPages", "3"));
+        pb.environment().put("STUB_PARAGRAPHS", opt("stubParagraphs", "10"));
+        app = pb.start();
+        System.out.println("started " + String.join(" ", command) + " (pid " + app.pid() + ", log " + work.resolve("app.log") + ")");
+    }
+
+    private void awaitReady(Duration timeout) throws Exception {
+        long end = System.nanoTime() + timeout.toNanos();
+        while (System.nanoTime() < end) {
+            if (app != null && !app.isAlive()) throw new IllegalStateException("service exited with " + app.exitValue());
+            try {
+                HttpResponse<Void> rsp = http.send(HttpRequest.newBuilder(URI.create(url + "/api/docling/stats"))
+                        .timeout(Duration.ofSeconds(5)).build(), HttpResponse.BodyHandlers.discarding());
+                if (rsp.statusCode() == 200) return;
+            } catch (IOException e) {
+                // not listening yet
+            }
+            Thread.sleep(500);
+        }
+        throw new TimeoutException("service at " + url + " not ready after " + timeout.toSeconds() + " s");
+    }
+
+    private synchronized void stopApp() {
+        if (app == null || !app.isAlive()) return;
+        app.descendants().forEach(ProcessHandle::destroy);               // stub runners first
+        app.destroy();
+        try {
+            if (!app.waitFor(20, TimeUnit.SECONDS)) app.destroyForcibly();
+        } catch (InterruptedException e) {
+            app.destroyForcibly();
+        }
+    }
+
+    private static String commit() {
+        try {
+            Process p = new ProcessBuilder("git", "rev-parse", "--short", "HEAD").redirectErrorStream(true).start();
+            String out = new String(p.getInputStream().readAllBytes(), StandardCharsets.UTF_8).trim();
+            return p.waitFor() == 0 ? out : null;
+        } catch (IOException | InterruptedException e) {
+            return null;
+        }
+    }
+
+    private String opt(String key, String def) {
+        return opts.getOrDefault(key, def);
+    }
+
+    private long num(String key, long def) {
+        return Long.parseLong(opt(key, Long.toString(def)));
+    }
+}
@@ -0,0 +1,149 @@
+package com.acme.pdf.util;
+
+import org.apache.pdfbox.io.RandomAccessRead;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Read-only PDFBox source over a memory-mapped file: the parser's seeks and reads hit the page cache directly,
+ * with no heap copy of the document and no read() syscall per buffer refill. Limited to files under 2 GiB
+ * (one mapping). close() unmaps at once, so a spool file deleted right after frees its disk blocks then rather
+ * than whenever the GC gets to the buffer; on a JVM where that is not possible (see canUnmap) don't map at all.
+ */
+public final class MappedRandomAccessRead implements RandomAccessRead {
+    public static final long MAX_SIZE = Integer.MAX_VALUE;
+
+    private static final MethodHandle UNMAP = unmapper();
+
+    private final MappedByteBuffer buf;
+    private boolean closed;
+
+    public MappedRandomAccessRead(File file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (ch.size() > MAX_SIZE) throw new IOException("too large to map: " + file);
+            buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size()); // stays valid after the channel closes
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        checkOpen();
+        return buf.hasRemaining() ? buf.get() & 0xff : -1;
+    }
+
+    @Override
+    public int read(byte[] b) throws IOException {
+        return read(b, 0, b.length);
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        checkOpen();
+        if (len == 0) return 0;
+        if (!buf.hasRemaining()) return -1;
+        int n = Math.min(len, buf.remaining());
+        buf.get(b, off, n);
+        return n;
+    }
+
+    @Override
+    public long getPosition() throws IOException {
+        checkOpen();
+        return buf.position();
+    }
+
+    @Override
+    public void seek(long position) throws IOException {
+        checkOpen();
+        if (position < 0) throw new IOException("invalid position " + position);
+        buf.position((int) Math.min(position, buf.limit()));
+    }
+
+    @Override
+    public long length() throws IOException {
+        checkOpen();
+        return buf.limit();
+    }
+
+    @Override
+    public boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public int peek() throws IOException {
+        checkOpen();
+        return buf.hasRemaining() ? buf.get(buf.position()) & 0xff : -1;
+    }
+
+    @Override
+    public void rewind(int bytes) throws IOException {
+        seek(getPosition() - bytes);
+    }
+
+    @Override
+    public byte[] readFully(int length) throws IOException {
+        checkOpen();
+        if (buf.remaining() < length) throw new EOFException("premature end of file");
+        byte[] b = new byte[length];
+        buf.get(b);
+        return b;
+    }
+
+    @Override
+    public boolean isEOF() throws IOException {
+        checkOpen();
+        return !buf.hasRemaining();
+    }
+
+    @Override
+    public int available() throws IOException {
+        checkOpen();
+        return buf.remaining();
+    }
+
+    @Override
+    public void close() {
+        if (closed) return;  // unmapping twice would crash the VM
+        closed = true;
+        if (UNMAP == null) return;
+        try {
+            UNMAP.invokeExact((ByteBuffer) buf);
+        } catch (Throwable t) {
+            // left to the GC
+        }
+    }
+
+    /** Whether close() can release the mapping itself. */
+    public static boolean canUnmap() {
+        return UNMAP != null;
+    }
+
+    private void checkOpen() throws IOException {
+        if (closed) throw new IOException("source is closed");
+    }
+
+    /** sun.misc.Unsafe.invokeCleaner (jdk.unsupported), bound; null when this JVM doesn't offer it. */
+    private static MethodHandle unmapper() {
+        try {
+            Class<?> unsafe = Class.forName("sun.misc.Unsafe");
+            Field f = unsafe.getDeclaredField("theUnsafe");
+            f.setAccessible(true);
+            return MethodHandles.lookup()
+                    .findVirtual(unsafe, "invokeCleaner", MethodType.methodType(void.class, ByteBuffer.class))
+                    .bindTo(f.get(null));
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.acme.pdf.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.File;
+import java.util.*;
+
+/**
+ * A copy of just the form pages of a PDF, for a Docling run that skips instruction and terms pages, plus the
+ * mapping back: page n of the subset is page pages[n - 1] of the original. Page geometry is preserved, so only
+ * page numbers need translating. Owns the file; close() deletes it (through the spool when it was written there).
+ */
+public final class PageSubset implements AutoCloseable {
+    private final File file;
+    private final int[] pages;
+    private final UploadSpool.Handle handle; // null = a plain temp file
+
+    PageSubset(File file, int[] pages) {
+        this.file = file;
+        this.pages = pages;
+        this.handle = null;
+    }
+
+    PageSubset(UploadSpool.Handle handle, int[] pages) {
+        this.file = handle.file();
+        this.pages = pages;
+        this.handle = handle;
+    }
+
+    public File file() { return file; }
+
+    /** Original page numbers in subset order. */
+    public int[] pages() { return pages.clone(); }
+
+    int original(int subsetPage) {
+        return subsetPage >= 1 && subsetPage <= pages.length ? pages[subsetPage - 1] : subsetPage;
+    }
+
+    /** Headings as DoclingHeadingReader returns them: rewrite each "page". */
+    void remapHeadings(ArrayNode headings) {
+        for (JsonNode h : headings) {
+            if (h instanceof ObjectNode o && o.path("page").isInt()) o.put("page", original(o.get("page").asInt()));
+        }
+    }
+
+    /**
+     * Raw Docling JSON: every "page_no", the "number" of each pages[] entry, and numeric keys of a "pages" object
+     * (the dict-shaped export) are translated in place.
+     */
+    void remapDocument(JsonNode doc) {
+        if (doc instanceof ObjectNode o) {
+            for (Iterator<Map.Entry<String, JsonNode>> it = o.fields(); it.hasNext(); ) {
+                Map.Entry<String, JsonNode> e = it.next();
+                if (e.getKey().equals("page_no") && e.getValue().isInt()) e.setValue(o.numberNode(original(e.getValue().asInt())));
+                else remapDocument(e.getValue());
+            }
+            if (o.get("pages") instanceof ArrayNode arr) {
+                for (JsonNode page : arr) {
+                    if (page instanceof ObjectNode p && p.path("number").isInt()) p.put("number", original(p.get("number").asInt()));
+                }
+            } else if (o.get("pages") instanceof ObjectNode byNumber) {
+                Map<String, JsonNode> renamed = new LinkedHashMap<>();
+                byNumber.fields().forEachRemaining(e -> renamed.put(renameKey(e.getKey()), e.getValue()));
+                byNumber.removeAll();
+                byNumber.setAll(renamed);
+            }
+        } else if (doc instanceof ArrayNode a) {
+            for (JsonNode n : a) remapDocument(n);
+        }
+    }
+
+    private String renameKey(String key) {
+        try {
+            return Integer.toString(original(Integer.parseInt(key)));
+        } catch (NumberFormatException e) {
+            return key;
+        }
+    }
+
+    @Override
+    public void close() {
+        if (handle != null) handle.close();
+        else file.delete();
+    }
+}
@@ -0,0 +1,173 @@
+package com.acme.pdf.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDFontDescriptor;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.apache.pdfbox.text.TextPosition;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.*;
+
+/**
+ * Headings from the text layer alone: a line is a heading when it is set noticeably larger than the body text
+ * (the size most characters use), or entirely bold at body size and short. Larger sizes get lower levels.
+ * Boxes are top-left based like Docling's. No text layer (a scan) yields null so callers can fall back.
+ */
+@Service
+public class PdfBoxHeadingEngine implements HeadingEngine {
+    private static final ObjectMapper M = new ObjectMapper();
+
+    @Autowired(required = false) PdfMemoryGovernor governor; // absent in benchmarks: plain in-heap load
+    @Autowired(required = false) PipelineMetrics metrics = PipelineMetrics.NONE;
+    @Autowired(required = false) Bulkheads bulkheads = Bulkheads.NONE;
+
+    @Value("${heading.pdfbox.minChars:200}") private int minChars = 200;        // less text than this on the pages = scan
+    @Value("${heading.pdfbox.sizeRatio:1.15}") private double sizeRatio = 1.15; // heading size vs body size
+    @Value("${heading.pdfbox.maxChars:120}") private int maxChars = 120;        // longer lines are prose, whatever the font
+
+    @Override
+    public String name() {
+        return "pdfbox";
+    }
+
+    @Override
+    public Result find(File pdf, int[] pages, Timings timings) throws Exception {
+        return bulkheads.cpu(timings, () -> scan(pdf, pages, timings));
+    }
+
+    private Result scan(File pdf, int[] pages, Timings timings) throws Exception {
+        long t = System.nanoTime();
+        try (PdfMemoryGovernor.Lease lease = governor != null ? governor.open(pdf) : PdfMemoryGovernor.unmanaged(pdf)) {
+            PDDocument doc = lease.doc();
+            Lines lines = new Lines();
+            if (pages == null) lines.read(doc, 1, doc.getNumberOfPages());
+            else for (int p : pages) lines.read(doc, p, p);
+            return new Result(name(), lines.chars < minChars ? null : headings(lines.all), null, pages);
+        } finally {
+            metrics.stage("pdfbox_headings", t, timings);
+        }
+    }
+
+    private ArrayNode headings(List<Line> lines) {
+        Map<Float, Integer> charsBySize = new HashMap<>();
+        for (Line l : lines) charsBySize.merge(l.size, l.chars, Integer::sum);
+        float body = charsBySize.entrySet().stream().max(Map.Entry.comparingByValue()).map(Map.Entry::getKey).orElse(0f);
+
+        List<Line> found = new ArrayList<>();
+        TreeSet<Float> sizes = new TreeSet<>(Comparator.reverseOrder());
+        for (Line l : lines) {
+            if (isHeading(l, body)) {
+                found.add(l);
+                sizes.add(l.size);
+            }
+        }
+        List<Float> bySize = new ArrayList<>(sizes);
+        ArrayNode out = M.createArrayNode();
+        for (Line l : found) {
+            out.addObject()
+                    .put("title", l.text.toString().strip())
+                    .put("level", Math.min(6, bySize.indexOf(l.size) + 1))
+                    .put("page", l.page)
+                    .set("bbox", M.createObjectNode()
+                            .put("x", round(l.left)).put("y", round(l.top))
+                            .put("w", round(l.right - l.left)).put("h", round(l.bottom - l.top)));
+        }
+        return out;
+    }
+
+    private boolean isHeading(Line l, float body) {
+        String s = l.text.toString().strip();
+        if (s.length() < 2 || s.length() > maxChars || s.chars().noneMatch(Character::isLetter)) return false;
+        if (l.size >= body * sizeRatio) return true;
+        // bold at body size: section titles, but not sentences or "Label:" captions next to fields
+        return l.boldChars == l.chars && l.size >= body * 0.95 && !s.endsWith(".") && !s.endsWith(":")
+                && s.split("\\s+").length <= 12;
+    }
+
+    private static float round(float v) {
+        return Math.round(v * 10) / 10f;
+    }
+
+    /** One visual line of text on a page (words joined by single spaces). */
+    private static final class Line {
+        final int page;
+        final StringBuilder text = new StringBuilder();
+        int chars, boldChars;
+        float size, left = Float.MAX_VALUE, right = -Float.MAX_VALUE, top = Float.MAX_VALUE, bottom = -Float.MAX_VALUE;
+
+        Line(int page) {
+            this.page = page;
+        }
+    }
+
+    /** Text stripper that keeps line geometry and font statistics instead of writing text. */
+    private static final class Lines extends PDFTextStripper {
+        final List<Line> all = new ArrayList<>();
+        int chars;
+        private final Map<PDFont, Boolean> bold = new IdentityHashMap<>();
+        private Line current;
+
+        Lines() throws IOException {
+            setSortByPosition(true);
+        }
+
+        void read(PDDocument doc, int from, int to) throws IOException {
+            setStartPage(from);
+            setEndPage(to);
+            writeText(doc, Writer.nullWriter());
+        }
+
+        @Override
+        protected void writeString(String word, List<TextPosition> positions) {
+            if (current == null) current = new Line(getCurrentPageNo());
+            Line l = current;
+            if (l.text.length() > 0) l.text.append(' ');
+            l.text.append(word);
+            for (TextPosition tp : positions) {
+                float size = tp.getFontSizeInPt() > 0 ? tp.getFontSizeInPt() : tp.getHeightDir();
+                l.size = Math.max(l.size, Math.round(size * 2) / 2f);   // half-point buckets absorb rounding noise
+                l.chars++;
+                if (bold.computeIfAbsent(tp.getFont(), Lines::isBold)) l.boldChars++;
+                l.left = Math.min(l.left, tp.getXDirAdj());
+                l.right = Math.max(l.right, tp.getXDirAdj() + tp.getWidthDirAdj());
+                l.top = Math.min(l.top, tp.getYDirAdj() - tp.getHeightDir());
+                l.bottom = Math.max(l.bottom, tp.getYDirAdj());
+            }
+        }
+
+        @Override
+        protected void writeLineSeparator() {
+            flush();
+        }
+
+        @Override
+        protected void endPage(PDPage page) {
+            flush();
+        }
+
+        private void flush() {
+            if (current != null && current.chars > 0) {
+                all.add(current);
+                chars += current.chars;
+            }
+            current = null;
+        }
+
+        private static boolean isBold(PDFont f) {
+            if (f == null) return false;
+            PDFontDescriptor d = f.getFontDescriptor();
+            if (d != null && (d.isForceBold() || d.getFontWeight() >= 600)) return true;
+            String n = f.getName();
+            return n != null && (n.contains("Bold") || n.contains("Black") || n.contains("Heavy") || n.contains("Semibold"));
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.acme.pdf.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import jakarta.annotation.PostConstruct;
+import com.acme.pdf.util.MappedRandomAccessRead;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.io.RandomAccessRead;
+import org.apache.pdfbox.io.ScratchFile;
+import org.apache.pdfbox.pdfparser.PDFParser;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Admission control for PDDocument loads. Every load reserves its estimated heap cost (file size x factor,
+ * topped up by page count once parsed) from a node-wide budget, and documents above pdf.memory.heavyBytes also
+ * take one of a few "heavy" slots. PDFBox scratch buffers are capped per document and spill to temp files.
+ * When the budget stays exhausted past the admit timeout the load degrades to temp-file-only buffering
+ * instead of failing; only the heavy-slot wait can reject.
+ */
+@Service
+public class PdfMemoryGovernor {
+    private static final ObjectMapper M = new ObjectMapper();
+
+    @Value("${pdf.memory.mainMemoryBytes:16777216}") private long mainMemoryBytes;   // per-document scratch before spilling
+    @Value("${pdf.memory.tempDir:${java.io.tmpdir}}") private String tempDir;
+    @Value("${pdf.memory.budgetMb:0}") private long budgetMb;                         // 0 = half of -Xmx
+    @Value("${pdf.memory.bytesPerFileByte:4}") private double bytesPerFileByte;
+    @Value("${pdf.memory.bytesPerPage:262144}") private long bytesPerPage;
+    @Value("${pdf.memory.heavyBytes:20971520}") private long heavyBytes;
+    @Value("${pdf.memory.maxHeavyLoads:2}") private int maxHeavyLoads;
+    @Value("${pdf.memory.admitTimeoutMs:30000}") private long admitTimeoutMs;
+    @Value("${pdf.memory.mmap:true}") private boolean mmap;                            // map the spooled file instead of buffered reads (where it can be unmapped)
+
+    private Semaphore budgetKb;  // permits are KiB so multi-GB budgets fit an int
+    private Semaphore heavy;
+    private int totalKb;
+    private final AtomicInteger inFlight = new AtomicInteger(), queued = new AtomicInteger();
+    private final AtomicLong degraded = new AtomicLong(), overcommitted = new AtomicLong(), rejected = new AtomicLong();
+
+    /** Loaded document plus the budget it holds; closing it releases both. */
+    public static final class Lease implements AutoCloseable {
+        private final PDDocument doc;
+        private int kb;
+        private final boolean heavySlot;
+
+        private final PdfMemoryGovernor owner;
+
+        private Lease(PdfMemoryGovernor owner, PDDocument doc, int kb, boolean heavySlot) {
+            this.owner = owner;
+            this.doc = doc;
+            this.kb = kb;
+            this.heavySlot = heavySlot;
+        }
+
+        public PDDocument doc() { return doc; }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                doc.close();
+            } finally {
+                if (owner != null) owner.release(kb, heavySlot);
+                kb = 0;
+            }
+        }
+    }
+
+    /** Load {@code pdf} under the memory policy; blocks while the node is at its budget. */
+    public Lease open(File pdf) throws IOException, InterruptedException {
+        long size = pdf.length();
+        boolean isHeavy = size >= heavyBytes;
+        int wantKb = (int) Math.min(totalKb, Math.max(64, (long) (size * bytesPerFileByte) / 1024));
+
+        queued.incrementAndGet();
+        boolean heavySlot = false;
+        int heldKb = 0;
+        try {
+            if (isHeavy) {
+                if (!heavy.tryAcquire(admitTimeoutMs, TimeUnit.MILLISECONDS)) {
+                    rejected.incrementAndGet();
+                    throw new RejectedExecutionException("too many large PDFs in flight, retry later");
+                }
+                heavySlot = true;
+            }
+            if (budgetKb.tryAcquire(wantKb, admitTimeoutMs, TimeUnit.MILLISECONDS)) heldKb = wantKb;
+            else degraded.incrementAndGet();                                 // no budget: load anyway, nothing in heap
+        } catch (InterruptedException | RuntimeException e) {
+            if (heavySlot) heavy.release();
+            throw e;
+        } finally {
+            queued.decrementAndGet();
+        }
+
+        MemoryUsageSetting mem = heldKb > 0 ? MemoryUsageSetting.setupMixed(mainMemoryBytes) : MemoryUsageSetting.setupTempFileOnly();
+        mem.setTempDir(new File(tempDir));
+        inFlight.incrementAndGet();
+        PDDocument doc;
+        try {
+            doc = parse(pdf, mem);
+        } catch (IOException | RuntimeException e) {
+            if (heldKb > 0) budgetKb.release(heldKb);
+            if (heavySlot) heavy.release();
+            inFlight.decrementAndGet();
+            throw e;
+        }
+
+        Lease lease = new Lease(this, doc, heldKb, heavySlot);
+        // page count is only known now: top up the reservation if pages say it is bigger than the file suggested
+        if (heldKb > 0) {
+            int extra = (int) Math.min(totalKb, (long) doc.getNumberOfPages() * bytesPerPage / 1024) - heldKb;
+            if (extra > 0) {
+                if (budgetKb.tryAcquire(extra)) lease.kb += extra;
+                else overcommitted.incrementAndGet();                     // already loaded; don't block holding it
+            }
+        }
+        return lease;
+    }
+
+    /**
+     * PDDocument.load(File) equivalent that can read through a memory mapping of the (spooled) file. Only when the
+     * mapping can be released on close: a mapping left to the GC keeps a deleted spool file's blocks allocated
+     * after the spool has handed its bytes back to the quota.
+     */
+    private PDDocument parse(File pdf, MemoryUsageSetting mem) throws IOException {
+        if (!mmap || !MappedRandomAccessRead.canUnmap() || pdf.length() > MappedRandomAccessRead.MAX_SIZE) {
+            return PDDocument.load(pdf, mem);
+        }
+        RandomAccessRead source = new MappedRandomAccessRead(pdf);
+        ScratchFile scratch = new ScratchFile(mem);
+        try {
+            PDFParser parser = new PDFParser(source, scratch);
+            parser.parse();
+            return parser.getPDDocument(); // document now owns source + scratch and closes them
+        } catch (IOException | RuntimeException e) {
+            scratch.close();
+            source.close();
+            throw e;
+        }
+    }
+
+    /** Load outside any governor (tools, benchmarks): whole document in heap, nothing reserved. */
+    public static Lease unmanaged(File pdf) throws IOException {
+        return new Lease(null, PDDocument.load(pdf, MemoryUsageSetting.setupMainMemoryOnly()), 0, false);
+    }
+
+    private void release(int kb, boolean heavySlot) {
+        if (kb > 0) budgetKb.release(kb);
+        if (heavySlot) heavy.release();
+        inFlight.decrementAndGet();
+    }
+
+    public ObjectNode stats() {
+        ObjectNode s = M.createObjectNode();
+        s.put("budgetKb", totalKb);
+        s.put("availableKb", budgetKb.availablePermits());
+        s.put("heavyAvailable", heavy.availablePermits());
+        s.put("inFlight", inFlight.get());
+        s.put("queued", queued.get());
+        s.put("degraded", degraded.get());
+        s.put("overcommitted", overcommitted.get());
+        s.put("rejected", rejected.get());
+        return s;
+    }
+
+    @PostConstruct
+    void init() {
+        long bytes = budgetMb > 0 ? budgetMb * 1024 * 1024 : Runtime.getRuntime().maxMemory() / 2;
+        totalKb = (int) Math.min(Integer.MAX_VALUE, bytes / 1024);
+        heavy = new Semaphore(Math.max(1, maxHeavyLoads), true);
+        budgetKb = new Semaphore(totalKb, true);
+    }
+}
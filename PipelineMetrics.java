@@ -0,0 +1,106 @@
+package com.acme.pdf.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Micrometer meters for the extraction path, scraped from /actuator/prometheus
+ * (management.endpoints.web.exposure.include=health,prometheus):
+ * <ul>
+ *   <li>pdf.extract.stage{stage} - spool, cpu_wait / docling_wait (queued at a bulkhead), pdf_load, harvest,
+ *       page_subset, docling_prescan, docling_split / docling_merge (chunked documents), docling_startup (pooled
+ *       worker boot), docling_spawn, docling_convert, docling_parse, pdfbox_headings, layout, cache_store,
+ *       serialize (percentile histograms)</li>
+ *   <li>pdf.extract{outcome} - whole extraction: cache_hit | template_hit | docling | pdfbox (the engine that found
+ *       the headings, or that engine + _failed) | error</li>
+ *   <li>pdf.document.bytes / .pages / .fields - what was extracted, as distributions (no per-document tags)</li>
+ *   <li>docling.exit{code} (exit code, or timeout / crash / error), docling.empty, docling.parse.failures,
+ *       docling.breaker.rejected, docling.deadline.exceeded - how Docling runs end; docling.profile{profile} - which
+ *       pipeline options they used</li>
+ *   <li>pdf.extract.inflight, docling.subprocesses, docling.breaker.open (+ docling.pool.live / .idle when pooled)
+ *       - gauges</li>
+ * </ul>
+ */
+@Service
+public class PipelineMetrics {
+    /** Records nothing; for components built outside Spring (benchmarks, tools). */
+    public static final PipelineMetrics NONE = new PipelineMetrics(new CompositeMeterRegistry());
+
+    private final MeterRegistry registry;
+    private final Map<String, Timer> stages = new ConcurrentHashMap<>();
+    private final Map<String, Timer> outcomes = new ConcurrentHashMap<>();
+    private final DistributionSummary bytes, pages, fields;
+
+    final AtomicInteger inFlight = new AtomicInteger();
+    final AtomicInteger subprocesses = new AtomicInteger();  // per-call spawns; pooled workers have their own gauge
+
+    public PipelineMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        registry.gauge("pdf.extract.inflight", inFlight);
+        registry.gauge("docling.subprocesses", subprocesses);
+        bytes = DistributionSummary.builder("pdf.document.bytes").baseUnit("bytes").publishPercentileHistogram().register(registry);
+        pages = DistributionSummary.builder("pdf.document.pages").publishPercentileHistogram().register(registry);
+        fields = DistributionSummary.builder("pdf.document.fields").publishPercentileHistogram().register(registry);
+    }
+
+    public MeterRegistry registry() {
+        return registry;
+    }
+
+    /** {@code stage} ran from {@code startNanos} (System.nanoTime) until now; also noted in {@code timings} if non-null. */
+    public void stage(String stage, long startNanos, Timings timings) {
+        record(stage, System.nanoTime() - startNanos, timings);
+    }
+
+    public void record(String stage, long n, Timings timings) {
+        stages.computeIfAbsent(stage, s -> Timer.builder("pdf.extract.stage").tag("stage", s)
+                .publishPercentileHistogram().register(registry)).record(n, TimeUnit.NANOSECONDS);
+        if (timings != null) timings.add(stage, n);
+    }
+
+    public void extraction(String outcome, long startNanos) {
+        outcomes.computeIfAbsent(outcome, o -> Timer.builder("pdf.extract").tag("outcome", o)
+                .publishPercentileHistogram().register(registry)).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void document(long sizeBytes, int pageCount, int fieldCount) {
+        bytes.record(sizeBytes);
+        pages.record(pageCount);
+        fields.record(fieldCount);
+    }
+
+    /** Exit code of a spawned runner, or crash / error for pooled workers. */
+    public void doclingExit(String code) {
+        registry.counter("docling.exit", "code", code).increment();
+    }
+
+    public void doclingProfile(String profile) {
+        registry.counter("docling.profile", "profile", profile).increment();
+    }
+
+    public void doclingEmpty() {
+        registry.counter("docling.empty").increment();
+    }
+
+    public void doclingParseFailure() {
+        registry.counter("docling.parse.failures").increment();
+    }
+
+    /** docling.timeoutMs ran out before a conversion could finish, waiting for a slot, a worker or the last chunk. */
+    public void doclingDeadline() {
+        registry.counter("docling.deadline.exceeded").increment();
+    }
+
+    /** Call skipped because the breaker is open. */
+    public void doclingShortCircuited() {
+        registry.counter("docling.breaker.rejected").increment();
+    }
+}
@@ -0,0 +1,185 @@
+package com.acme.pdf.bench;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.interactive.annotation.PDAnnotationWidget;
+import org.apache.pdfbox.pdmodel.interactive.annotation.PDAppearanceDictionary;
+import org.apache.pdfbox.pdmodel.interactive.annotation.PDAppearanceEntry;
+import org.apache.pdfbox.pdmodel.interactive.annotation.PDAppearanceStream;
+import org.apache.pdfbox.pdmodel.interactive.form.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Deterministic AcroForm PDFs for benchmarks and load tests: N pages, M fields per page laid out in two columns,
+ * cycling through text / checkbox / radio / combo / list box, plus a matching Docling-style document whose
+ * headings sit above each group of field rows (top-left coordinates, like Docling).
+ */
+public final class SyntheticFormGenerator {
+    private static final ObjectMapper M = new ObjectMapper();
+    private static final PDRectangle PAGE = PDRectangle.LETTER;
+    private static final float MARGIN = 40, COL_WIDTH = 250, FIELD_HEIGHT = 12;
+
+    public enum FieldKind { TEXT, CHECKBOX, RADIO, COMBO, LIST }
+
+    private final int pages, fieldsPerPage, headingsPerPage;
+    private final FieldKind[] kinds;
+
+    public SyntheticFormGenerator(int pages, int fieldsPerPage, int headingsPerPage, FieldKind... kinds) {
+        this.pages = pages;
+        this.fieldsPerPage = fieldsPerPage;
+        this.headingsPerPage = Math.max(1, headingsPerPage);
+        this.kinds = kinds.length > 0 ? kinds : FieldKind.values();
+    }
+
+    /** Write the form PDF. */
+    public File writePdf(File out) throws IOException {
+        try (PDDocument doc = new PDDocument()) {
+            PDAcroForm form = new PDAcroForm(doc);
+            doc.getDocumentCatalog().setAcroForm(form);
+            int n = 0;
+            for (int p = 1; p <= pages; p++) {
+                PDPage page = new PDPage(PAGE);
+                doc.addPage(page);
+                for (int i = 0; i < fieldsPerPage; i++, n++) {
+                    PDRectangle r = fieldRect(i);
+                    String name = "Page " + p + " / Field #" + i;   // punctuation + spaces exercise sanitizeKey
+                    form.getFields().add(field(doc, form, page, kinds[n % kinds.length], name, r));
+                }
+            }
+            doc.save(out);
+        }
+        return out;
+    }
+
+    /** Docling-shaped document for the same form: heading blocks above each field group plus filler paragraphs. */
+    public ObjectNode doclingDocument(int paragraphsPerPage) {
+        ObjectNode root = M.createObjectNode();
+        ArrayNode pagesArr = root.putArray("pages");
+        for (int p = 1; p <= pages; p++) {
+            ObjectNode page = pagesArr.addObject();
+            page.put("page_no", p);
+            ArrayNode blocks = page.putArray("blocks");
+            for (int h = 0; h < headingsPerPage; h++) {
+                float top = PAGE.getHeight() - slotTop(headingSlot(h)); // Docling boxes are top-left based
+                ObjectNode b = blocks.addObject();
+                b.put("type", h % 3 == 0 ? "heading1" : "heading2");
+                b.put("text", "Part " + p + "." + (h + 1));
+                b.set("bbox", M.createObjectNode().put("x", MARGIN).put("y", top).put("w", 2 * COL_WIDTH + 20).put("h", boxHeight()));
+            }
+            for (int i = 0; i < paragraphsPerPage; i++) {
+                ObjectNode b = blocks.addObject();
+                b.put("type", "paragraph");
+                b.put("text", "Instructions for completing this section of the form, paragraph " + i + ".");
+                b.set("bbox", M.createObjectNode().put("left", MARGIN).put("top", 20 + i).put("width", 500).put("height", 10));
+            }
+        }
+        return root;
+    }
+
+    // ---------- geometry ----------
+    // Each page is a column of slots from the top: [heading, rows..., heading, rows..., ...].
+
+    private int rows() {
+        return (fieldsPerPage + 1) / 2;
+    }
+
+    private int rowsPerGroup() {
+        return Math.max(1, (rows() + headingsPerPage - 1) / headingsPerPage);
+    }
+
+    private float pitch() {
+        return (PAGE.getHeight() - 2 * MARGIN) / Math.max(1, rows() + headingsPerPage);
+    }
+
+    private float boxHeight() {
+        return Math.min(FIELD_HEIGHT, pitch() * 0.8f);
+    }
+
+    /** PDF-space (bottom-left origin) top edge of a slot. */
+    private float slotTop(int slot) {
+        return PAGE.getHeight() - MARGIN - slot * pitch();
+    }
+
+    private int headingSlot(int h) {
+        return h * (rowsPerGroup() + 1);
+    }
+
+    private PDRectangle fieldRect(int i) {
+        int row = i / 2, col = i % 2;
+        int slot = row + Math.min(headingsPerPage - 1, row / rowsPerGroup()) + 1;
+        float top = slotTop(slot);
+        return new PDRectangle(MARGIN + col * (COL_WIDTH + 20), top - boxHeight(), COL_WIDTH, boxHeight());
+    }
+
+    // ---------- fields ----------
+
+    private static PDField field(PDDocument doc, PDAcroForm form, PDPage page, FieldKind kind, String name, PDRectangle r) {
+        PDTerminalField f = switch (kind) {
+            case TEXT -> new PDTextField(form);
+            case CHECKBOX -> new PDCheckBox(form);
+            case RADIO -> new PDRadioButton(form);
+            case COMBO -> {
+                PDComboBox cb = new PDComboBox(form);
+                cb.setOptions(List.of("Alpha", "Beta", "Gamma", "Delta"));
+                yield cb;
+            }
+            case LIST -> {
+                PDListBox lb = new PDListBox(form);
+                lb.setOptions(List.of("Red", "Green", "Blue"));
+                yield lb;
+            }
+        };
+        f.setPartialName(name);
+
+        List<PDAnnotationWidget> widgets = new ArrayList<>();
+        switch (kind) {
+            case CHECKBOX -> widgets.add(widget(doc, page, r, "Yes"));
+            case RADIO -> {
+                float w = r.getWidth() / 3;
+                String[] opts = {"Yes", "No", "Maybe"};
+                for (int i = 0; i < opts.length; i++) {
+                    PDRectangle part = new PDRectangle(r.getLowerLeftX() + i * w, r.getLowerLeftY(), r.getHeight(), r.getHeight());
+                    widgets.add(widget(doc, page, part, opts[i]));
+                }
+            }
+            default -> widgets.add(widget(doc, page, r, null));
+        }
+        f.setWidgets(widgets);
+        for (PDAnnotationWidget w : widgets) {
+            w.setParent(f);
+            try {
+                page.getAnnotations().add(w);
+            } catch (IOException e) {
+                throw new IllegalStateException(e); // fresh in-memory page, cannot fail
+            }
+        }
+        return f;
+    }
+
+    /** Widget on {@code page}; button widgets get an /AP /N with {@code onValue} + /Off so getOnValues() sees them. */
+    private static PDAnnotationWidget widget(PDDocument doc, PDPage page, PDRectangle r, String onValue) {
+        PDAnnotationWidget w = new PDAnnotationWidget();
+        w.setRectangle(r);
+        w.setPage(page);
+        if (onValue != null) {
+            COSDictionary normal = new COSDictionary();
+            normal.setItem(COSName.getPDFName(onValue), new PDAppearanceStream(doc));
+            normal.setItem(COSName.Off, new PDAppearanceStream(doc));
+            PDAppearanceDictionary ap = new PDAppearanceDictionary();
+            ap.setNormalAppearance(new PDAppearanceEntry(normal));
+            w.setAppearance(ap);
+            w.setAppearanceState("Off");
+        }
+        return w;
+    }
+}
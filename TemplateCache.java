@@ -0,0 +1,128 @@
+package com.acme.pdf.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Docling headings per form template, keyed by the harvest's structural fingerprint rather than the file bytes:
+ * every filling of a known template gets its layout from a PDFBox-only pass. In-memory LRU bounded by
+ * templates.maxEntries, with a TTL so a template whose printed headings changed (same fields) heals itself;
+ * single templates or all of them can be invalidated through /api/templates.
+ */
+@Service
+public class TemplateCache {
+    private static final ObjectMapper M = new ObjectMapper();
+
+    @Value("${templates.enabled:true}") private boolean enabled;
+    @Value("${templates.maxEntries:1000}") private int maxEntries;
+    @Value("${templates.ttlSeconds:604800}") private long ttlSeconds;  // 0 = never expire
+    @Value("${templates.minFields:1}") private int minFields;          // field-less PDFs all look alike: never match them
+
+    private static final class Entry {
+        final ArrayNode headings;
+        final int fields;
+        final long storedAt = System.currentTimeMillis();
+        long hits;
+
+        Entry(ArrayNode headings, int fields) {
+            this.headings = headings;
+            this.fields = fields;
+        }
+    }
+
+    private final LinkedHashMap<String, Entry> templates = new LinkedHashMap<>(64, 0.75f, true); // access order = LRU
+    private final AtomicLong hits = new AtomicLong(), misses = new AtomicLong(), puts = new AtomicLong(),
+            evictions = new AtomicLong(), invalidations = new AtomicLong();
+
+    /** Whether the pipeline should harvest first and consult the cache before starting Docling. */
+    public boolean enabled() {
+        return enabled;
+    }
+
+    /** Cached headings for this form's template (read-only, shared), or null. */
+    public ArrayNode get(PdfBoxExtractor.Harvest h) {
+        if (!enabled || !eligible(h)) return null;
+        synchronized (this) {
+            Entry e = templates.get(h.fingerprint);
+            if (e != null && ttlSeconds > 0 && System.currentTimeMillis() - e.storedAt > ttlSeconds * 1000) {
+                templates.remove(h.fingerprint);
+                e = null;
+            }
+            if (e == null) {
+                misses.incrementAndGet();
+                return null;
+            }
+            e.hits++;
+            hits.incrementAndGet();
+            return e.headings;
+        }
+    }
+
+    /** Remember the headings of a successful Docling run for this form's template. */
+    public void put(PdfBoxExtractor.Harvest h, ArrayNode headings) {
+        if (!enabled || !eligible(h)) return;
+        Entry e = new Entry(headings.deepCopy(), h.fields.size());
+        synchronized (this) {
+            templates.put(h.fingerprint, e);
+            puts.incrementAndGet();
+            Iterator<Map.Entry<String, Entry>> it = templates.entrySet().iterator();
+            while (templates.size() > maxEntries && it.hasNext()) {
+                it.next();
+                it.remove(); // eldest = least recently used
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    /** Forget one template; true if it was cached. */
+    public synchronized boolean invalidate(String fingerprint) {
+        boolean removed = templates.remove(fingerprint) != null;
+        if (removed) invalidations.incrementAndGet();
+        return removed;
+    }
+
+    /** Forget every template; returns how many there were. */
+    public synchronized int clear() {
+        int n = templates.size();
+        templates.clear();
+        invalidations.addAndGet(n);
+        return n;
+    }
+
+    /** Known templates, most recently used last. */
+    public synchronized ArrayNode list() {
+        ArrayNode out = M.createArrayNode();
+        templates.forEach((fp, e) -> out.addObject()
+                .put("fingerprint", fp)
+                .put("fields", e.fields)
+                .put("headings", e.headings.size())
+                .put("hits", e.hits)
+                .put("storedAt", e.storedAt));
+        return out;
+    }
+
+    public ObjectNode stats() {
+        ObjectNode s = M.createObjectNode();
+        s.put("enabled", enabled);
+        synchronized (this) {
+            s.put("entries", templates.size());
+        }
+        s.put("maxEntries", maxEntries);
+        s.put("hits", hits.get());
+        s.put("misses", misses.get());
+        s.put("puts", puts.get());
+        s.put("evictions", evictions.get());
+        s.put("invalidations", invalidations.get());
+        return s;
+    }
+
+    private boolean eligible(PdfBoxExtractor.Harvest h) {
+        return h.fingerprint != null && h.fields.size() >= Math.max(1, minFields);
+    }
+}
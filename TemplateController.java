@@ -0,0 +1,44 @@
+package com.acme.pdf.controller;
+
+import com.acme.pdf.service.TemplateCache;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+/** Known form templates (fingerprint = provenance.template of an envelope) and their invalidation. */
+@RestController
+@RequestMapping("/api/templates")
+public class TemplateController {
+    private static final ObjectMapper M = new ObjectMapper();
+
+    @Autowired TemplateCache templates;
+
+    @GetMapping(produces=MediaType.APPLICATION_JSON_VALUE)
+    public ArrayNode list() {
+        return templates.list();
+    }
+
+    @GetMapping(value="/stats", produces=MediaType.APPLICATION_JSON_VALUE)
+    public ObjectNode stats() {
+        return templates.stats();
+    }
+
+    /** Next upload of this template runs Docling again, e.g. after the printed form was revised. */
+    @DeleteMapping(value="/{fingerprint}", produces=MediaType.APPLICATION_JSON_VALUE)
+    public ObjectNode invalidate(@PathVariable String fingerprint) {
+        if (!templates.invalidate(fingerprint)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "unknown template " + fingerprint);
+        }
+        return M.createObjectNode().put("invalidated", 1);
+    }
+
+    @DeleteMapping(produces=MediaType.APPLICATION_JSON_VALUE)
+    public ObjectNode clear() {
+        return M.createObjectNode().put("invalidated", templates.clear());
+    }
+}
@@ -0,0 +1,34 @@
+package com.acme.pdf.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Stage durations of one request, for the optional "timings" breakdown in responses (?timings=true).
+ * Stages are recorded from the request thread and the harvest thread alike; repeated stages add up.
+ */
+public final class Timings {
+    private static final ObjectMapper M = new ObjectMapper();
+
+    private final long startedAt = System.nanoTime();
+    private final Map<String, Long> nanos = new LinkedHashMap<>();
+
+    public synchronized void add(String stage, long n) {
+        nanos.merge(stage, n, Long::sum);
+    }
+
+    /** {"spool":1.2,"pdf_load":8.4,...,"total":912.3} in milliseconds; stages that ran in parallel overlap. */
+    public synchronized ObjectNode toJson() {
+        ObjectNode out = M.createObjectNode();
+        nanos.forEach((stage, n) -> out.put(stage, ms(n)));
+        out.put("total", ms(System.nanoTime() - startedAt));
+        return out;
+    }
+
+    private static double ms(long nanos) {
+        return Math.round(nanos / 1_000.0) / 1_000.0;
+    }
+}
@@ -1,33 +1,155 @@
 package com.acme.pdf.controller;
 
+import com.acme.pdf.service.Bulkheads;
 import com.acme.pdf.service.DoclingClient;
-import com.acme.pdf.service.PdfBoxExtractor;
-import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.acme.pdf.service.Envelope;
+import com.acme.pdf.service.ExtractionCache;
+import com.acme.pdf.service.ExtractionPipeline;
+import com.acme.pdf.service.PdfMemoryGovernor;
+import com.acme.pdf.service.PipelineMetrics;
+import com.acme.pdf.service.Timings;
+import com.acme.pdf.service.UploadSpool;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.io.File;
+import java.util.Locale;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/api")
 public class UploadController {
+    private static final String SMILE_VALUE = "application/x-jackson-smile", CBOR_VALUE = "application/cbor";
+
+    /** Response encodings picked from Accept; JSON unless Smile or CBOR is asked for explicitly. */
+    private enum Format {
+        JSON(MediaType.APPLICATION_JSON, new ObjectMapper()),
+        SMILE(MediaType.parseMediaType(SMILE_VALUE), new ObjectMapper(new SmileFactory())),
+        CBOR(MediaType.parseMediaType(CBOR_VALUE), new ObjectMapper(new CBORFactory()));
+
+        final MediaType type;
+        final ObjectMapper mapper;
+
+        Format(MediaType type, ObjectMapper mapper) {
+            this.type = type;
+            this.mapper = mapper;
+        }
+
+        static Format of(String accept) {
+            if (accept == null) return JSON;
+            for (MediaType t : MediaType.parseMediaTypes(accept)) {
+                if (t.getQualityValue() == 0) continue;
+                for (Format f : values()) {
+                    if (t.equalsTypeAndSubtype(f.type)) return f;
+                }
+            }
+            return JSON;
+        }
+    }
+
+    /** RFC 9110 Accept-Encoding: gzip (or x-gzip, or *) with a non-zero q; an explicit gzip;q=0 refuses it. */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) return false;
+        Double gzip = null, any = null;
+        for (String item : acceptEncoding.split(",")) {
+            String[] params = item.split(";");
+            String coding = params[0].trim().toLowerCase(Locale.ROOT);
+            double q = 1;
+            for (int i = 1; i < params.length; i++) {
+                String param = params[i].trim();
+                if (param.regionMatches(true, 0, "q=", 0, 2)) {
+                    try {
+                        q = Double.parseDouble(param.substring(2).trim());
+                    } catch (NumberFormatException e) {
+                        q = 0;                                   // malformed weight: don't guess
+                    }
+                }
+            }
+            if (coding.equals("gzip") || coding.equals("x-gzip")) gzip = gzip == null ? q : Math.max(gzip, q);
+            else if (coding.equals("*")) any = q;
+        }
+        if (gzip != null) return gzip > 0;
+        return any != null && any > 0;
+    }
+
+    @Autowired ExtractionPipeline pipeline;
+    @Autowired ExtractionCache cache;
+    @Autowired PdfMemoryGovernor memory;
+    @Autowired UploadSpool spool;
+    @Autowired PipelineMetrics metrics;
     @Autowired DoclingClient docling;
-    @Autowired PdfBoxExtractor pdfBox;
+    @Autowired Bulkheads bulkheads;
 
-    @PostMapping(value="/extract", consumes=MediaType.MULTIPART_FORM_DATA_VALUE, produces=MediaType.APPLICATION_JSON_VALUE)
-    public ObjectNode extract(@RequestParam("file") MultipartFile file) throws Exception {
-        File tmp = File.createTempFile("upload-", ".pdf");
-        file.transferTo(tmp);
+    /**
+     * The whole envelope by default; {@code include=provenance} (any list) trims it to schema + uiHints + layout plus
+     * the listed parts. The envelope is generated straight into the response, gzipped when the client accepts it.
+     * {@code timings=true} appends the per-stage breakdown of this request in milliseconds.
+     */
+    @PostMapping(value="/extract", consumes=MediaType.MULTIPART_FORM_DATA_VALUE,
+            produces={MediaType.APPLICATION_JSON_VALUE, SMILE_VALUE, CBOR_VALUE})
+    public ResponseEntity<StreamingResponseBody> extract(@RequestParam("file") MultipartFile file,
+                                                         @RequestParam(value="include", required=false) String include,
+                                                         @RequestParam(value="timings", defaultValue="false") boolean withTimings,
+                                                         @RequestHeader(value=HttpHeaders.ACCEPT, required=false) String accept,
+                                                         @RequestHeader(value=HttpHeaders.ACCEPT_ENCODING, required=false) String acceptEncoding) throws Exception {
+        Timings timings = withTimings ? new Timings() : null;
+        Envelope envelope;
+        try (UploadSpool.Handle pdf = spool.adopt(file.getSize(), file::transferTo)) {
+            if (timings != null) timings.add("spool", pdf.spoolNanos());
+            envelope = pipeline.envelope(pdf.file(), pdf.sha256(), ExtractionPipeline.Progress.NONE, timings);
+        }
+        if (timings != null) envelope.withTimings(timings.toJson());
+        Set<String> parts = Envelope.parts(include);
+        Format format = Format.of(accept);
+        boolean gzip = acceptsGzip(acceptEncoding);
 
-        ObjectNode doclingRaw = docling.runRaw(tmp);             // full document JSON
-        ArrayNode headings   = docling.headings(doclingRaw);     // [{title,level,page,bbox}]
-        ObjectNode envelope  = pdfBox.toJsonEnvelope(tmp, headings);
+        ResponseEntity.BodyBuilder ok = ResponseEntity.ok().contentType(format.type)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) ok.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        return ok.body(out -> {
+            long start = System.nanoTime();
+            GZIPOutputStream zip = gzip ? new GZIPOutputStream(out, 64 * 1024) : null;
+            try (JsonGenerator g = format.mapper.getFactory().createGenerator(zip != null ? zip : out)) {
+                g.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET); // the container owns the response stream
+                envelope.writeTo(g, parts);
+            }
+            if (zip != null) zip.finish();
+            metrics.stage("serialize", start, null); // after the body is out, so only in the metrics
+        });
+    }
+
+    @GetMapping(value="/cache/stats", produces=MediaType.APPLICATION_JSON_VALUE)
+    public ObjectNode cacheStats() {
+        return cache.stats();
+    }
+
+    @GetMapping(value="/memory/stats", produces=MediaType.APPLICATION_JSON_VALUE)
+    public ObjectNode memoryStats() {
+        return memory.stats();
+    }
+
+    @GetMapping(value="/docling/stats", produces=MediaType.APPLICATION_JSON_VALUE)
+    public ObjectNode doclingStats() {
+        return docling.stats();
+    }
+
+    @GetMapping(value="/spool/stats", produces=MediaType.APPLICATION_JSON_VALUE)
+    public ObjectNode spoolStats() {
+        return spool.stats();
+    }
 
-        // include docling raw for the agent (optional but requested earlier)
-        envelope.set("docling", doclingRaw);
-        return envelope;
+    @GetMapping(value="/bulkheads/stats", produces=MediaType.APPLICATION_JSON_VALUE)
+    public ObjectNode bulkheadStats() {
+        return bulkheads.stats();
     }
 }
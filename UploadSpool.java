@@ -0,0 +1,235 @@
+package com.acme.pdf.service;
+
+import com.acme.pdf.util.IoUtils;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.*;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * The one place uploads touch disk. Each upload lands once in upload.spool.dir: moved there from the servlet
+ * container's multipart file (adopt), or streamed there (spool, for ZIP entries and other streams), and hashed
+ * for the content cache. It is counted against a directory-wide quota, and deleted when its Handle is closed, i.e.
+ * when the request, job or batch entry that owns it ends. Files derived from an upload (page copies, Docling
+ * chunks) are written here too, against the same quota. Leftovers from a crashed process are purged at startup.
+ */
+@Service
+public class UploadSpool {
+    private static final ObjectMapper M = new ObjectMapper();
+
+    @Autowired PipelineMetrics metrics;
+
+    @Value("${upload.spool.dir:${java.io.tmpdir}/pdf-spool}") private String dir;
+    @Value("${upload.spool.maxBytes:4294967296}") private long maxBytes;         // quota for all live spool files
+    @Value("${upload.spool.maxFileBytes:536870912}") private long maxFileBytes;  // per upload
+
+    private Path root;
+    private final AtomicLong used = new AtomicLong();
+    private final AtomicInteger open = new AtomicInteger();
+    private final AtomicLong rejected = new AtomicLong();
+
+    /** An upload over the per-file limit (413 at the API). */
+    public static final class TooLargeException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        public TooLargeException(long limit) {
+            super("upload exceeds " + limit + " bytes");
+        }
+    }
+
+    /** Moves or copies an upload to the given file, e.g. MultipartFile::transferTo. */
+    @FunctionalInterface
+    public interface Transfer {
+        void to(File file) throws IOException;
+    }
+
+    /** A spooled upload; close() deletes the file and gives its bytes back to the quota. */
+    public final class Handle implements AutoCloseable {
+        private final File file;
+        private final String sha256;
+        private final long size;
+        private final long spoolNanos;
+        private final AtomicBoolean closed = new AtomicBoolean(); // not a monitor: the delete is I/O
+
+        private Handle(File file, String sha256, long size, long spoolNanos) {
+            this.file = file;
+            this.sha256 = sha256;
+            this.size = size;
+            this.spoolNanos = spoolNanos;
+        }
+
+        public File file() { return file; }
+        public String sha256() { return sha256; } // null for derived files
+        public long size() { return size; }
+        public long spoolNanos() { return spoolNanos; } // time to receive, hash and write the upload
+
+        @Override
+        public void close() {
+            if (closed.getAndSet(true)) return;
+            file.delete();
+            used.addAndGet(-size);
+            open.decrementAndGet();
+        }
+    }
+
+    @PostConstruct
+    void init() throws IOException {
+        root = Paths.get(dir);
+        Files.createDirectories(root);
+        try (Stream<Path> files = Files.list(root)) {
+            files.forEach(f -> f.toFile().delete()); // nobody owns these any more
+        }
+    }
+
+    public Handle spool(InputStream in, long declaredSize) throws IOException {
+        return spool(in, declaredSize, maxFileBytes);
+    }
+
+    /**
+     * Take over an upload the container already holds on disk. {@code transfer} puts it into the spool, which is
+     * a rename when spring.servlet.multipart.location is on the same filesystem, and one read then hashes it.
+     * @throws TooLargeException over upload.spool.maxFileBytes
+     * @throws RejectedExecutionException when the spool quota is exhausted
+     */
+    public Handle adopt(long size, Transfer transfer) throws IOException {
+        if (size > maxFileBytes) throw new TooLargeException(maxFileBytes);
+        if (used.addAndGet(size) > maxBytes) {
+            used.addAndGet(-size);
+            throw full();
+        }
+        long start = System.nanoTime();
+        File f = root.resolve("upload-" + UUID.randomUUID() + ".pdf").toFile(); // must not exist: a move won't overwrite
+        long accounted = size;
+        try {
+            transfer.to(f);
+            long actual = f.length();
+            used.addAndGet(actual - accounted);
+            accounted = actual;
+            if (actual > maxFileBytes) throw new TooLargeException(maxFileBytes);
+            String sha256 = IoUtils.sha256Hex(f);
+            open.incrementAndGet();
+            long took = System.nanoTime() - start;
+            metrics.record("spool", took, null);
+            return new Handle(f, sha256, accounted, took);
+        } catch (IOException | RuntimeException e) {
+            used.addAndGet(-accounted);
+            f.delete();
+            throw e;
+        }
+    }
+
+    /**
+     * Stream {@code in} to a new spool file. {@code declaredSize} (-1 if unknown) lets an upload that can never
+     * fit be refused before any byte is written.
+     * @throws TooLargeException over {@code limit}
+     * @throws RejectedExecutionException when the spool quota is exhausted
+     */
+    public Handle spool(InputStream in, long declaredSize, long limit) throws IOException {
+        if (declaredSize > limit) throw new TooLargeException(limit);
+        if (declaredSize > 0 && used.get() + declaredSize > maxBytes) throw full();
+
+        long start = System.nanoTime();
+        File f = File.createTempFile("upload-", ".pdf", root.toFile());
+        MessageDigest md = IoUtils.sha256();
+        long accounted = 0;                                      // bytes written and charged to the quota
+        try (OutputStream out = Files.newOutputStream(f.toPath())) {
+            byte[] buf = new byte[64 * 1024];
+            int n;
+            while ((n = in.read(buf)) > 0) {
+                if (accounted + n > limit) throw new TooLargeException(limit);
+                if (used.addAndGet(n) > maxBytes) {
+                    used.addAndGet(-n);
+                    throw full();
+                }
+                accounted += n;
+                md.update(buf, 0, n);
+                out.write(buf, 0, n);
+            }
+        } catch (IOException | RuntimeException e) {
+            used.addAndGet(-accounted);
+            f.delete();
+            throw e;
+        }
+        open.incrementAndGet();
+        long took = System.nanoTime() - start;
+        metrics.record("spool", took, null);
+        return new Handle(f, HexFormat.of().formatHex(md.digest()), accounted, took);
+    }
+
+    /** Produces a derived file's bytes. */
+    @FunctionalInterface
+    public interface Writer {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    /**
+     * A new spool file filled by {@code writer}, charged to the quota as it is written (not hashed).
+     * @throws RejectedExecutionException when the spool quota is exhausted
+     */
+    public Handle write(String prefix, Writer writer) throws IOException {
+        long start = System.nanoTime();
+        File f = File.createTempFile(prefix, ".pdf", root.toFile());
+        Charged charged = new Charged(Files.newOutputStream(f.toPath()));
+        try (OutputStream out = new BufferedOutputStream(charged, 64 * 1024)) {
+            writer.writeTo(out);
+        } catch (IOException | RuntimeException e) {
+            used.addAndGet(-charged.accounted);
+            f.delete();
+            throw e;
+        }
+        open.incrementAndGet();
+        return new Handle(f, null, charged.accounted, System.nanoTime() - start);
+    }
+
+    /** Counts what passes through against the quota; refuses the write that would exceed it. */
+    private final class Charged extends FilterOutputStream {
+        long accounted;
+
+        Charged(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (used.addAndGet(len) > maxBytes) {
+                used.addAndGet(-len);
+                throw full();
+            }
+            accounted += len;
+            out.write(b, off, len);
+        }
+    }
+
+    public ObjectNode stats() {
+        ObjectNode s = M.createObjectNode();
+        s.put("dir", root.toString());
+        s.put("usedBytes", used.get());
+        s.put("maxBytes", maxBytes);
+        s.put("openFiles", open.get());
+        s.put("rejected", rejected.get());
+        return s;
+    }
+
+    private RejectedExecutionException full() {
+        rejected.incrementAndGet();
+        return new RejectedExecutionException("upload spool is full, retry later");
+    }
+}
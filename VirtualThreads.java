@@ -0,0 +1,55 @@
+package com.acme.pdf.util;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Thread-per-task executors on virtual threads when the JVM has them (21+), looked up reflectively so the code
+ * still builds and runs on 17, where they fall back to named daemon platform threads.
+ */
+public final class VirtualThreads {
+    private static final Method OF_VIRTUAL, NAME, FACTORY, PER_TASK;
+
+    static {
+        Method ofVirtual = null, name = null, factory = null, perTask = null;
+        try {
+            Class<?> builder = Class.forName("java.lang.Thread$Builder");
+            ofVirtual = Thread.class.getMethod("ofVirtual");
+            name = builder.getMethod("name", String.class, long.class);
+            factory = builder.getMethod("factory");
+            perTask = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+        } catch (ReflectiveOperationException e) {
+            ofVirtual = null;                                   // pre-21 JVM
+        }
+        OF_VIRTUAL = ofVirtual;
+        NAME = name;
+        FACTORY = factory;
+        PER_TASK = perTask;
+    }
+
+    private VirtualThreads() {
+    }
+
+    public static boolean available() {
+        return OF_VIRTUAL != null;
+    }
+
+    /** A new thread per task, named {@code name-N}; virtual when available. */
+    public static ExecutorService perTask(String name) {
+        if (available()) {
+            try {
+                Object builder = NAME.invoke(OF_VIRTUAL.invoke(null), name + "-", 0L);
+                return (ExecutorService) PER_TASK.invoke(null, FACTORY.invoke(builder));
+            } catch (ReflectiveOperationException e) {
+                // fall through to platform threads
+            }
+        }
+        return Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, name);
+            t.setDaemon(true);
+            return t;
+        });
+    }
+}
@@ -0,0 +1,40 @@
+package com.acme.pdf.controller;
+
+import com.acme.pdf.util.VirtualThreads;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Requests (and the streamed response bodies) run on virtual threads, so a request parked on Docling costs no
+ * platform thread; the limits that matter are the stage bulkheads (Bulkheads), not the Tomcat pool.
+ * server.virtualThreads=false, or a JVM older than 21, keeps Tomcat's own pool.
+ */
+@Configuration
+public class WebServerConfig implements WebMvcConfigurer {
+    @Value("${server.virtualThreads:true}") private boolean virtualThreads;
+    @Value("${batch.timeoutMs:3600000}") private long batchTimeoutMs;   // streamed bodies: NDJSON batches are the long ones
+
+    @Bean
+    TomcatProtocolHandlerCustomizer<?> virtualRequestThreads() {
+        return handler -> {
+            if (enabled()) handler.setExecutor(VirtualThreads.perTask("http"));
+        };
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        // Tomcat's default (30 s) would cut a batch off mid-stream; the batch ends itself at batch.timeoutMs with a
+        // summary line, so the container only steps in a minute after that (or never, with 0)
+        configurer.setDefaultTimeout(batchTimeoutMs > 0 ? batchTimeoutMs + 60_000 : -1);
+        if (enabled()) configurer.setTaskExecutor(new TaskExecutorAdapter(VirtualThreads.perTask("mvc-async")));
+    }
+
+    private boolean enabled() {
+        return virtualThreads && VirtualThreads.available();
+    }
+}
@@ -1,14 +1,81 @@
 import sys, json
+from docling.datamodel.base_models import InputFormat
 from docling.document_converter import DocumentConverter
 
+# usage: docling_runner.py [--options JSON] file.pdf
+#        docling_runner.py --serve [--warm JSON]...
+# options: {"ocr": bool, "tables": bool} -> PdfPipelineOptions (page/picture images never generated); absent = defaults
+
 def main():
-    if len(sys.argv) < 2:
+    args = sys.argv[1:]
+    if args[:1] == ["--serve"]:
+        serve([json.loads(v) for flag, v in zip(args[1::2], args[2::2]) if flag == "--warm"])
+        return
+    options = None
+    if args[:1] == ["--options"]:
+        options = json.loads(args[1])
+        args = args[2:]
+    if not args:
         print(json.dumps({}))
         return
-    pdf_path = sys.argv[1]
-    conv = DocumentConverter()
-    result = conv.convert(pdf_path)
+    result = converter(options).convert(args[0])
     print(json.dumps(result.document.to_dict()))
 
+_converters = {}
+
+def converter(options):
+    """One DocumentConverter per distinct options: each holds its own loaded pipeline."""
+    key = json.dumps(options, sort_keys=True)
+    conv = _converters.get(key)
+    if conv is None:
+        if options is None:
+            conv = DocumentConverter()
+        else:
+            from docling.datamodel.pipeline_options import PdfPipelineOptions
+            from docling.document_converter import PdfFormatOption
+            po = PdfPipelineOptions()
+            po.do_ocr = bool(options.get("ocr", True))
+            po.do_table_structure = bool(options.get("tables", True))
+            po.generate_page_images = False
+            po.generate_picture_images = False
+            conv = DocumentConverter(format_options={InputFormat.PDF: PdfFormatOption(pipeline_options=po)})
+        _converters[key] = conv
+    return conv
+
+def serve(warm):
+    """Long-lived worker: load models once, then answer one JSON request per stdin line.
+
+    request:  {"id": "...", "op": "convert", "path": "/tmp/x.pdf"[, "options": {...}]} | {"id": "...", "op": "ping"}
+    response: {"id": "...", "ok": true, "document": {...}} | {"id": "...", "ok": false, "error": "..."}
+    """
+    out = sys.stdout
+    sys.stdout = sys.stderr  # keep library chatter off the protocol stream
+    for options in warm or [None]:
+        conv = converter(options)
+        if hasattr(conv, "initialize_pipeline"):  # load models now, not on the first job
+            conv.initialize_pipeline(InputFormat.PDF)
+    reply(out, {"id": "ready", "ok": True})
+
+    for line in sys.stdin:
+        line = line.strip()
+        if not line:
+            continue
+        req = {}
+        try:
+            req = json.loads(line)
+            op = req.get("op", "convert")
+            if op == "ping":
+                reply(out, {"id": req.get("id"), "ok": True})
+                continue
+            result = converter(req.get("options")).convert(req["path"])
+            reply(out, {"id": req.get("id"), "ok": True, "document": result.document.to_dict()})
+        except Exception as e:  # report and keep serving; the pool restarts us only if we die
+            reply(out, {"id": req.get("id"), "ok": False, "error": str(e)})
+
+def reply(out, msg):
+    out.write(json.dumps(msg))
+    out.write("\n")
+    out.flush()
+
 if __name__ == "__main__":
     main()
@@ -0,0 +1,65 @@
+import os, sys, json, time
+
+# Drop-in stand-in for docling_runner.py that needs no models: same CLI, same --serve protocol.
+# Pipeline options (--options / "options") are accepted and echoed back as "options" in the document.
+#   STUB_DELAY_MS    simulated conversion time per document (default 0)
+#   STUB_PAGES       pages in the fake document (default 1)
+#   STUB_PARAGRAPHS  extra paragraph blocks per page, to grow the output (default 0)
+#   STUB_CRASH_AFTER exit(1) after this many conversions, to exercise pool restarts (default never)
+
+def fake_document(pdf_path, options=None):
+    time.sleep(int(os.environ.get("STUB_DELAY_MS", "0")) / 1000.0)
+    pages = []
+    paragraphs = int(os.environ.get("STUB_PARAGRAPHS", "0"))
+    for n in range(1, int(os.environ.get("STUB_PAGES", "1")) + 1):
+        blocks = [
+            {"type": "heading1", "text": "Section %d" % n, "bbox": {"x": 36, "y": 40, "w": 300, "h": 18}},
+            {"type": "paragraph", "text": "stub text for " + os.path.basename(pdf_path), "bbox": {"x": 36, "y": 70, "w": 500, "h": 40}},
+        ]
+        for i in range(paragraphs):
+            blocks.append({"type": "paragraph", "text": "filler paragraph %d " % i + "lorem ipsum " * 20,
+                           "bbox": {"x": 36, "y": 120 + i * 12 % 600, "w": 500, "h": 10}})
+        pages.append({"page_no": n, "blocks": blocks})
+    doc = {"pages": pages}
+    if options is not None:
+        doc["options"] = options
+    return doc
+
+def main():
+    args = sys.argv[1:]
+    if args[:1] == ["--serve"]:
+        serve()  # --warm options need no preloading here
+        return
+    options = None
+    if args[:1] == ["--options"]:
+        options = json.loads(args[1])
+        args = args[2:]
+    if not args:
+        print(json.dumps({}))
+        return
+    print(json.dumps(fake_document(args[0], options)))
+
+def serve():
+    crash_after = int(os.environ.get("STUB_CRASH_AFTER", "0"))
+    done = 0
+    reply({"id": "ready", "ok": True})
+    for line in sys.stdin:
+        line = line.strip()
+        if not line:
+            continue
+        req = json.loads(line)
+        if req.get("op", "convert") == "ping":
+            reply({"id": req.get("id"), "ok": True})
+            continue
+        reply({"id": req.get("id"), "ok": True, "document": fake_document(req["path"], req.get("options"))})
+        done += 1
+        if crash_after and done >= crash_after:
+            sys.exit(1)
+
+def reply(msg):
+    sys.stdout.write(json.dumps(msg))
+    sys.stdout.write("\n")
+    sys.stdout.flush()
+
+if __name__ == "__main__":
+    main()
@@ -1,6 +1,10 @@
 package com.acme.pdf.util;
 
 import java.io.*;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
 
 public final class IoUtils {
     private IoUtils() {}
@@ -20,4 +24,23 @@ public final class IoUtils {
         if (Character.isDigit(k.charAt(0))) k = "_" + k;
         return k;
     }
+
+    /** Hex SHA-256 of a file's bytes, streamed (used as a content address). */
+    public static String sha256Hex(File f) throws IOException {
+        MessageDigest md = sha256();
+        try (InputStream in = Files.newInputStream(f.toPath())) {
+            byte[] buf = new byte[64 * 1024];
+            int n;
+            while ((n = in.read(buf)) > 0) md.update(buf, 0, n);
+        }
+        return HexFormat.of().formatHex(md.digest());
+    }
+
+    public static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // mandated by the JDK spec
+        }
+    }
 }
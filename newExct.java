@@ -4,18 +4,28 @@ import com.acme.pdf.util.IoUtils;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.*;
+import org.apache.pdfbox.cos.*;
 import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
 import org.apache.pdfbox.pdmodel.common.PDRectangle;
 import org.apache.pdfbox.pdmodel.interactive.annotation.PDAnnotationWidget;
 import org.apache.pdfbox.pdmodel.interactive.form.*;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
 import java.util.*;
 
 @Service
 public class PdfBoxExtractor {
     private static final ObjectMapper M = new ObjectMapper();
+    private static final COSName POPUP = COSName.getPDFName("Popup"), IRT = COSName.getPDFName("IRT"), GOTO = COSName.getPDFName("GoTo");
+
+    @Autowired(required = false) PdfMemoryGovernor governor; // absent in benchmarks: plain in-heap load
+    @Autowired(required = false) PipelineMetrics metrics = PipelineMetrics.NONE;
+    @Autowired(required = false) UploadSpool spool;          // ditto: subsets go to a temp file beside the PDF
 
     /** Captures one PDF form field plus geometry for layout grouping */
     public static class FieldGeom {
@@ -27,11 +37,80 @@ public class PdfBoxExtractor {
         public PDRectangle rect;   // widget rect (first visible)
     }
 
+    /**
+     * A page's crop box (user space) and /Rotate. Heading boxes from both engines are in the page as displayed:
+     * rotated, top-left origin, relative to the crop box. Widget rects are in unrotated user space. Both are
+     * brought into the displayed page with a bottom-left origin to be compared.
+     */
+    public record PageBox(float llx, float lly, float urx, float ury, int rotation) {
+        static PageBox of(PDPage p) {
+            PDRectangle c = p.getCropBox();
+            return new PageBox(c.getLowerLeftX(), c.getLowerLeftY(), c.getUpperRightX(), c.getUpperRightY(),
+                    Math.floorMod(p.getRotation(), 360));
+        }
+
+        /** Height of the page as displayed. */
+        float displayHeight() {
+            return rotation == 90 || rotation == 270 ? urx - llx : ury - lly;
+        }
+
+        /** {left, bottom, right, top} of a user-space rect on the displayed page, bottom-left origin. */
+        float[] display(PDRectangle r) {
+            float x0 = r.getLowerLeftX(), y0 = r.getLowerLeftY(), x1 = r.getUpperRightX(), y1 = r.getUpperRightY();
+            return switch (rotation) {
+                case 90 -> new float[]{y0 - lly, urx - x1, y1 - lly, urx - x0};
+                case 180 -> new float[]{urx - x1, ury - y1, urx - x0, ury - y0};
+                case 270 -> new float[]{ury - y1, x0 - llx, ury - y0, x1 - llx};
+                default -> new float[]{x0 - llx, y0 - lly, x1 - llx, y1 - lly};
+            };
+        }
+    }
+
+    /** AcroForm pass result: every field with schema + geometry, in document order. Needs no headings. */
+    public static class Harvest {
+        public final Map<String, FieldGeom> fields = new LinkedHashMap<>();
+        public float[] pageHeights = new float[0]; // crop box height per page (index = page - 1), for the fingerprint
+        public PageBox[] pageBoxes = new PageBox[0]; // crop box and /Rotate per page, for heading coordinates
+        public String fingerprint;                 // structural identity of the form, see fingerprint()
+        public DoclingProfile.Prescan prescan;     // sampled pages, when the caller asked for them (null otherwise)
+
+        /** Pages holding at least one placed widget, ascending; the only pages whose headings can matter. */
+        public int[] formPages() {
+            return fields.values().stream().filter(g -> g.rect != null).mapToInt(g -> g.page).distinct().sorted().toArray();
+        }
+    }
+
     /** Build the full response envelope (schema + uiHints + provenance + layout) */
     public ObjectNode toJsonEnvelope(File pdf, ArrayNode headings) throws Exception {
-        Map<String, FieldGeom> fields = new LinkedHashMap<>();
+        return toJsonEnvelope(harvest(pdf), headings);
+    }
+
+    /** Stage 1: walk the AcroForm (types, enums, widget rects). Safe to run while Docling is still converting. */
+    public Harvest harvest(File pdf) throws Exception {
+        return harvest(pdf, null);
+    }
+
+    /** @param timings per-request breakdown to add pdf_load (incl. governor admission) and harvest to, or null */
+    public Harvest harvest(File pdf, Timings timings) throws Exception {
+        return harvest(pdf, timings, null);
+    }
+
+    /**
+     * @param scanner run on the loaded document as well (stage docling_prescan) so Docling needn't load it again,
+     *                or null
+     */
+    public Harvest harvest(File pdf, Timings timings, DoclingProfile.Scanner scanner) throws Exception {
+        Harvest h = new Harvest();
+        Map<String, FieldGeom> fields = h.fields;
 
-        try (PDDocument doc = PDDocument.load(pdf)) {
+        long loadStart = System.nanoTime();
+        try (PdfMemoryGovernor.Lease lease = open(pdf)) {
+            long walkStart = System.nanoTime();
+            metrics.stage("pdf_load", loadStart, timings);
+            PDDocument doc = lease.doc();
+            PageIndex pages = new PageIndex(doc);
+            h.pageHeights = pages.heights;
+            h.pageBoxes = pages.boxes;
             PDAcroForm form = doc.getDocumentCatalog().getAcroForm();
             if (form != null) {
                 for (PDField f : flatten(form.getFields())) {
@@ -72,9 +151,11 @@ public class PdfBoxExtractor {
                     PDRectangle bestRect = null;
                     int bestPage = 1;
                     for (PDAnnotationWidget w : f.getWidgets()) {
-                        if (w.getRectangle() != null && w.getPage() != null) {
+                        if (w.getRectangle() == null) continue;
+                        int page = pages.pageOf(w); // 1-based, 0 = not on any page
+                        if (page > 0) {
                             bestRect = w.getRectangle();
-                            bestPage = doc.getPages().indexOf(w.getPage()) + 1; // 1-based
+                            bestPage = page;
                             break;
                         }
                     }
@@ -84,7 +165,41 @@ public class PdfBoxExtractor {
                     fields.put(g.key, g);
                 }
             }
+            h.fingerprint = fingerprint(fields.values(), h.pageHeights);
+            metrics.stage("harvest", walkStart, timings);
+            if (scanner != null) {
+                long scanStart = System.nanoTime();
+                h.prescan = scanner.scan(doc);
+                metrics.stage("docling_prescan", scanStart, timings);
+            }
         }
+        return h;
+    }
+
+    /**
+     * Hex SHA-256 over page sizes and, per field in document order, name, type, options, page and widget box
+     * (rounded to whole points). Two fillings of the same template share it even though their bytes differ.
+     */
+    static String fingerprint(Collection<FieldGeom> fields, float[] pageHeights) {
+        MessageDigest md = IoUtils.sha256();
+        StringBuilder sb = new StringBuilder(256).append(pageHeights.length);
+        for (float ph : pageHeights) sb.append(',').append(Math.round(ph));
+        for (FieldGeom g : fields) {
+            sb.append('\n').append(g.originalName).append('\0').append(g.ui).append('\0').append(g.schema).append('\0').append(g.page);
+            if (g.rect != null) {
+                sb.append('@').append(Math.round(g.rect.getLowerLeftX())).append(',').append(Math.round(g.rect.getLowerLeftY()))
+                  .append(',').append(Math.round(g.rect.getWidth())).append(',').append(Math.round(g.rect.getHeight()));
+            }
+            md.update(sb.toString().getBytes(StandardCharsets.UTF_8));
+            sb.setLength(0);
+        }
+        md.update(sb.toString().getBytes(StandardCharsets.UTF_8)); // no fields: just the page sizes
+        return HexFormat.of().formatHex(md.digest());
+    }
+
+    /** Stage 2: schema + uiHints + provenance from the harvest, layout from harvest + Docling headings. */
+    public ObjectNode toJsonEnvelope(Harvest h, ArrayNode headings) {
+        Map<String, FieldGeom> fields = h.fields;
 
         // ---------- Build JSON Schema + uiHints + provenance ----------
         ObjectNode schemaRoot = M.createObjectNode();
@@ -104,106 +219,269 @@ public class PdfBoxExtractor {
         schemaRoot.set("required", M.createArrayNode());
 
         // ---------- Build layout from Docling headings + field geometry ----------
-        ArrayNode layout = buildLayout(fields.values(), headings);
+        ArrayNode layout = buildLayout(fields.values(), headings, h.pageBoxes);
 
         ObjectNode env = M.createObjectNode();
         env.set("schema", schemaRoot);
         env.set("uiHints", uiHints);
         ObjectNode prov = M.createObjectNode();
         prov.set("fieldMap", fieldMap);
+        if (h.fingerprint != null) prov.put("template", h.fingerprint);
         env.set("provenance", prov);
         env.set("layout", layout);
         return env;
     }
 
-    /** Group fields under the nearest upstream heading on the same page; fall back to per-page "Ungrouped". */
-    private ArrayNode buildLayout(Collection<FieldGeom> fields, ArrayNode headings) {
-        // Normalize headings into per-page lists, sorted by Y (top->bottom-ish)
-        Map<Integer, List<ObjectNode>> perPage = new HashMap<>();
-        for (JsonNode h : headings) {
-            int page = h.path("page").asInt(1);
-            ObjectNode hn = M.createObjectNode();
-            hn.put("title", h.path("title").asText(""));
-            hn.put("page", page);
-            ObjectNode bb = M.createObjectNode();
-            JsonNode hb = h.path("bbox");
-            bb.put("x", hb.path("x").asDouble(0));
-            bb.put("y", hb.path("y").asDouble(0));
-            bb.put("w", hb.path("w").asDouble(0));
-            bb.put("h", hb.path("h").asDouble(0));
-            hn.set("bbox", bb);
-            hn.set("keys", M.createArrayNode());
-            perPage.computeIfAbsent(page, k -> new ArrayList<>()).add(hn);
-        }
-        perPage.values().forEach(list ->
-            list.sort(Comparator.comparingDouble(n -> n.path("bbox").path("y").asDouble()))
-        );
-
-        // Assign each field to nearest heading above it; else per-page default section
-        Map<Integer, ObjectNode> defaultByPage = new HashMap<>();
+    /** How far a heading may dip below a field's top edge and still count as "above" it (user units). */
+    private static final float ABOVE_TOLERANCE = 5f;
+
+    /** Group fields under the nearest heading above them on the same page; fall back to per-page "Ungrouped". */
+    private ArrayNode buildLayout(Collection<FieldGeom> fields, ArrayNode headings, PageBox[] pageBoxes) {
+        HeadingIndex index = new HeadingIndex(headings, pageBoxes);
+
+        // Assign each field to a heading slot, else to its page's default bucket
+        List<List<String>> keysByHeading = new ArrayList<>(Collections.nCopies(index.size(), null));
+        Map<Integer, List<String>> ungrouped = new TreeMap<>();
+        Set<Integer> allPages = new TreeSet<>();
         for (FieldGeom f : fields) {
-            ObjectNode sec = nearestHeadingFor(f, perPage.getOrDefault(f.page, List.of()));
-            if (sec == null) {
-                sec = defaultByPage.computeIfAbsent(f.page, this::defaultSection);
+            int h = -1;
+            if (f.rect != null && f.page >= 1 && f.page <= pageBoxes.length) {
+                float[] d = pageBoxes[f.page - 1].display(f.rect);
+                h = index.nearestAbove(f.page, d[0], d[2], d[3]);
             }
-            sec.withArray("keys").add(f.key);
+            if (h >= 0) {
+                if (keysByHeading.get(h) == null) keysByHeading.set(h, new ArrayList<>());
+                keysByHeading.get(h).add(f.key);
+            } else {
+                ungrouped.computeIfAbsent(f.page, k -> new ArrayList<>()).add(f.key);
+            }
+            allPages.add(f.page);
         }
 
         // Build final ordered layout (page asc -> headings top->bottom -> default bucket)
         ArrayNode out = M.createArrayNode();
-        Set<Integer> allPages = new TreeSet<>(perPage.keySet());
-        allPages.addAll(defaultByPage.keySet());
         for (int pg : allPages) {
-            for (ObjectNode h : perPage.getOrDefault(pg, List.of())) {
-                if (h.withArray("keys").size() > 0) out.add(toLayoutSection(h));
+            for (int i = index.end(pg) - 1; i >= index.start(pg); i--) { // descending bottom edge = top to bottom
+                if (keysByHeading.get(i) != null) out.add(section(index.title[i], keysByHeading.get(i)));
             }
-            ObjectNode def = defaultByPage.get(pg);
-            if (def != null && def.withArray("keys").size() > 0) out.add(toLayoutSection(def));
+            List<String> def = ungrouped.get(pg);
+            if (def != null) out.add(section(pg > 0 ? ("Ungrouped (page " + pg + ")") : "Ungrouped", def));
         }
 
         // If still empty (no headings at all), dump a single default with all fields
         if (out.size() == 0 && !fields.isEmpty()) {
-            ObjectNode def = defaultSection(-1);
-            for (FieldGeom f : fields) def.withArray("keys").add(f.key);
-            out.add(toLayoutSection(def));
+            List<String> all = new ArrayList<>();
+            for (FieldGeom f : fields) all.add(f.key);
+            out.add(section("Ungrouped", all));
         }
         return out;
     }
 
-    /** <<< This is the missing method you noticed. Converts a heading node to the minimal layout section. >>> */
-    private ObjectNode toLayoutSection(ObjectNode headingNode) {
+    /** Minimal layout section: {title, keys}. */
+    private ObjectNode section(String title, List<String> keys) {
         ObjectNode s = M.createObjectNode();
-        s.put("title", headingNode.path("title").asText("Section"));
-        ArrayNode keys = M.createArrayNode();
-        headingNode.withArray("keys").forEach(keys::add);
-        s.set("keys", keys);
+        s.put("title", title.isEmpty() ? "Section" : title);
+        ArrayNode arr = s.putArray("keys");
+        keys.forEach(arr::add);
         return s;
     }
 
-    private ObjectNode defaultSection(int page) {
-        ObjectNode s = M.createObjectNode();
-        s.put("title", page > 0 ? ("Ungrouped (page " + page + ")") : "Ungrouped");
-        s.put("page", page);
-        s.set("bbox", M.createObjectNode().put("x", 0).put("y", 0).put("w", 0).put("h", 0));
-        s.set("keys", M.createArrayNode());
-        return s;
+    /**
+     * Headings flattened into primitive arrays, grouped by page (page p owns slots [first[p], first[p+1])) and
+     * sorted by bottom edge on the displayed page (see PageBox). Heading boxes are top-left based while widget rects
+     * are bottom-left, so every heading is flipped against its displayed page height once here; field lookups are
+     * then a binary search with no JsonNode access.
+     */
+    private static final class HeadingIndex {
+        private final int[] first;
+        private final float[] bottom, left, right;
+        final String[] title;
+
+        HeadingIndex(ArrayNode headings, PageBox[] pageBoxes) {
+            int pages = pageBoxes.length, n = headings.size();
+            int[] page = new int[n];
+            float[] b = new float[n], l = new float[n], r = new float[n];
+            first = new int[pages + 2];
+
+            int valid = 0;
+            for (int i = 0; i < n; i++) {
+                JsonNode h = headings.get(i);
+                int p = h.path("page").asInt(1);
+                if (p < 1 || p > pages) continue;   // not a page of this document (page stays 0 = skipped)
+                JsonNode bb = h.path("bbox");
+                float x = (float) bb.path("x").asDouble(0), y = (float) bb.path("y").asDouble(0);
+                float w = (float) bb.path("w").asDouble(0), ht = (float) bb.path("h").asDouble(0);
+                boolean bottomLeft = "BOTTOMLEFT".equalsIgnoreCase(bb.path("origin").asText(""));
+                b[i] = bottomLeft ? y : pageBoxes[p - 1].displayHeight() - (y + ht);
+                l[i] = x;
+                r[i] = w > 0 ? x + w : Float.MAX_VALUE;     // unknown width: treat as full width
+                page[i] = p;
+                first[p + 1]++;
+                valid++;
+            }
+            for (int p = 1; p <= pages; p++) first[p + 1] += first[p];
+
+            Integer[] order = new Integer[valid];
+            for (int i = 0, k = 0; i < n; i++) if (page[i] > 0) order[k++] = i;
+            Arrays.sort(order, (i, j) -> page[i] != page[j] ? Integer.compare(page[i], page[j])
+                    : b[i] != b[j] ? Float.compare(b[i], b[j])
+                    : Float.compare(l[j], l[i]));          // same row: read back-to-front gives left to right
+
+            bottom = new float[valid];
+            left = new float[valid];
+            right = new float[valid];
+            title = new String[valid];
+            for (int k = 0; k < valid; k++) {
+                int i = order[k];
+                bottom[k] = b[i];
+                left[k] = l[i];
+                right[k] = r[i];
+                title[k] = headings.get(i).path("title").asText("");
+            }
+        }
+
+        int size() { return title.length; }
+        int start(int page) { return page >= 1 && page + 1 < first.length ? first[page] : 0; }
+        int end(int page) { return page >= 1 && page + 1 < first.length ? first[page + 1] : 0; }
+
+        /**
+         * Slot of the closest heading above the field (bottom edge at or over the field's top), preferring one
+         * that overlaps the field horizontally so two-column forms group by column; -1 if nothing is above.
+         */
+        int nearestAbove(int page, float fieldLeft, float fieldRight, float fieldTop) {
+            int lo = start(page), hi = end(page);
+            float min = fieldTop - ABOVE_TOLERANCE;
+            while (lo < hi) {                            // lower bound: first bottom >= min
+                int mid = (lo + hi) >>> 1;
+                if (bottom[mid] < min) lo = mid + 1; else hi = mid;
+            }
+            int end = end(page);
+            if (lo >= end) return -1;
+            for (int i = lo; i < end; i++) {             // walk upwards to the first heading in the field's column
+                if (left[i] < fieldRight && right[i] > fieldLeft) return i;
+            }
+            return lo;                                   // nothing in this column: nearest above regardless
+        }
+    }
+
+    /**
+     * Copy {@code pages} (1-based, ascending) of {@code pdf} into a new spool file (counted against its quota), for
+     * a Docling run on those alone. Widget annotations are dropped from the copies: they point back into the
+     * AcroForm and would drag every other page along when saving, and Docling reads page content, not fields.
+     * Other annotations (stamps, notes, markup) stay, minus their links back to the original pages.
+     */
+    public PageSubset subset(File pdf, int[] pages) throws Exception {
+        return split(pdf, List.of(pages)).get(0);
+    }
+
+    /** One subset per page list, loading {@code pdf} only once: the chunks of a chunked Docling run. */
+    public List<PageSubset> split(File pdf, List<int[]> parts) throws Exception {
+        List<PageSubset> out = new ArrayList<>(parts.size());
+        try (PdfMemoryGovernor.Lease lease = open(pdf)) {
+            for (int[] pages : parts) out.add(copy(lease.doc(), pdf, pages));
+        } catch (Exception e) {
+            out.forEach(PageSubset::close);
+            throw e;
+        }
+        return out;
+    }
+
+    private PageSubset copy(PDDocument doc, File pdf, int[] pages) throws Exception {
+        try (PDDocument sub = new PDDocument()) {
+            for (int p : pages) {
+                PDPage copy = sub.importPage(doc.getPage(p - 1));
+                keepNonWidgetAnnotations(copy);
+            }
+            if (spool != null) return new PageSubset(spool.write("pages-", sub::save), pages);
+            File out = File.createTempFile("pages-", ".pdf", pdf.getAbsoluteFile().getParentFile());
+            try {
+                sub.save(out);
+            } catch (Exception e) {
+                out.delete();
+                throw e;
+            }
+            return new PageSubset(out, pages);
+        }
     }
 
-    /** Find the nearest heading above the field on the same page (by Y). */
-    private ObjectNode nearestHeadingFor(FieldGeom f, List<ObjectNode> candidates) {
-        if (f.rect == null || candidates.isEmpty()) return null;
-        double fy = f.rect.getLowerLeftY(); // PDF user-space Y
-        ObjectNode best = null;
-        double bestDy = Double.MAX_VALUE;
-        for (ObjectNode h : candidates) {
-            double hy = h.path("bbox").path("y").asDouble();
-            double dy = fy - hy;              // prefer headings above the field
-            if (dy >= -5 && dy < bestDy) {    // small tolerance for overlap
-                bestDy = dy;
-                best = h;
+    /**
+     * The imported page shares its dictionaries with the source document, so annotations are replaced by copies
+     * rather than edited. Widgets and popups (closed note windows) go; the rest lose every key that points at
+     * another object of the original (/P, /Parent, /Popup, /IRT, GoTo targets), any of which drags its pages along.
+     */
+    private static void keepNonWidgetAnnotations(PDPage copy) {
+        if (!(copy.getCOSObject().getDictionaryObject(COSName.ANNOTS) instanceof COSArray annots)) {
+            copy.getCOSObject().removeItem(COSName.ANNOTS);
+            return;
+        }
+        COSArray kept = new COSArray();
+        for (int i = 0; i < annots.size(); i++) {
+            if (!(annots.getObject(i) instanceof COSDictionary a)) continue;
+            COSName subtype = a.getCOSName(COSName.SUBTYPE);
+            if (COSName.WIDGET.equals(subtype) || POPUP.equals(subtype)) continue;
+            COSDictionary own = new COSDictionary(a);
+            for (COSName back : new COSName[]{COSName.P, COSName.PARENT, POPUP, IRT, COSName.DEST}) own.removeItem(back);
+            if (own.getDictionaryObject(COSName.A) instanceof COSDictionary action && GOTO.equals(action.getCOSName(COSName.S))) {
+                own.removeItem(COSName.A);
+            }
+            kept.add(own);
+        }
+        if (kept.size() == 0) copy.getCOSObject().removeItem(COSName.ANNOTS);
+        else copy.getCOSObject().setItem(COSName.ANNOTS, kept);
+    }
+
+    private PdfMemoryGovernor.Lease open(File pdf) throws Exception {
+        return governor != null ? governor.open(pdf) : PdfMemoryGovernor.unmanaged(pdf);
+    }
+
+    /**
+     * Page number lookup built once per document. PDPageTree.indexOf walks the tree on every call, which made
+     * the harvest O(fields x pages); this is one walk up front, then identity lookups on the page dictionary.
+     */
+    private static final class PageIndex {
+        private final PDDocument doc;
+        private final Map<COSDictionary, Integer> byPage = new IdentityHashMap<>();
+        final float[] heights;
+        final PageBox[] boxes;
+        private Map<COSDictionary, Integer> byWidget; // built lazily, only if some widget lacks /P
+
+        PageIndex(PDDocument doc) {
+            this.doc = doc;
+            heights = new float[doc.getNumberOfPages()];
+            boxes = new PageBox[heights.length];
+            int n = 1;
+            for (PDPage p : doc.getPages()) {
+                heights[n - 1] = p.getCropBox().getHeight();
+                boxes[n - 1] = PageBox.of(p);
+                byPage.put(p.getCOSObject(), n++);
+            }
+        }
+
+        int pageOf(PDAnnotationWidget w) {
+            PDPage p = w.getPage();
+            if (p != null) {
+                Integer n = byPage.get(p.getCOSObject());
+                if (n != null) return n;
+            }
+            // /P is optional (and sometimes wrong): fall back to whichever page lists the widget in /Annots
+            if (byWidget == null) byWidget = scanAnnots();
+            return byWidget.getOrDefault(w.getCOSObject(), 0);
+        }
+
+        private Map<COSDictionary, Integer> scanAnnots() {
+            Map<COSDictionary, Integer> out = new IdentityHashMap<>();
+            int n = 1;
+            for (PDPage p : doc.getPages()) {
+                if (p.getCOSObject().getDictionaryObject(COSName.ANNOTS) instanceof COSArray annots) {
+                    for (COSBase a : annots) {
+                        COSBase o = a instanceof COSObject ref ? ref.getObject() : a;
+                        if (o instanceof COSDictionary d) out.putIfAbsent(d, n);
+                    }
+                }
+                n++;
             }
+            return out;
         }
-        return best;
     }
 
     private List<PDField> flatten(List<PDField> fields) {